@@ -0,0 +1,28 @@
+package com.mailtasksai.backend.config;
+
+import com.mailtasksai.backend.dto.AICompanyUsage;
+import com.mailtasksai.backend.service.AIUsageLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// /actuator/aiusage?days=30&limit=20: empresas que mais consumiram tokens da IA no período.
+// Reflete o que já foi gravado pelo AIUsageLedger (atraso de até ai.usage.flush-interval-ms).
+@Component
+@Endpoint(id = "aiusage")
+public class AIUsageEndpoint {
+
+    @Autowired
+    private AIUsageLedger usageLedger;
+
+    @ReadOperation
+    public List<AICompanyUsage> topCompanies(@Nullable Integer days, @Nullable Integer limit) {
+        return usageLedger.getTopCompanies(
+                days != null && days > 0 ? days : 30,
+                limit != null && limit > 0 ? Math.min(limit, 500) : 20);
+    }
+}
@@ -7,6 +7,7 @@ import com.mailtasksai.backend.repository.CategoryRepository;
 import com.mailtasksai.backend.repository.CompanyRepository;
 import com.mailtasksai.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -26,6 +27,13 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private UserRepository userRepository;
 
+    // Conta com role "operator", a única que lê o actuator além do health (ver SecurityConfig)
+    @Value("${app.operator.email:}")
+    private String operatorEmail;
+
+    @Value("${app.operator.password:}")
+    private String operatorPassword;
+
     @Override
     public void run(String... args) throws Exception {
         if (categoryRepository.count() == 0) {
@@ -75,5 +83,30 @@ public class DataInitializer implements CommandLineRunner {
         System.out.println("### USUÁRIO DE DEMONSTRAÇÃO ATUALIZADO ###");
         System.out.println("Login: " + emailDemo);
         System.out.println("Senha: " + senhaDemo);
+
+        provisionOperator(company);
+    }
+
+    private void provisionOperator(Company company) {
+        if (operatorEmail.isBlank() || operatorPassword.isBlank()) {
+            return;
+        }
+
+        List<User> users = userRepository.findByEmail(operatorEmail);
+        User operator = users.isEmpty() ? new User() : users.get(0);
+        if (operator.getCompany() == null) {
+            operator.setCompany(company);
+        }
+        if (operator.getName() == null) {
+            operator.setName("Operador");
+        }
+        operator.setEmail(operatorEmail);
+        operator.setRole("operator");
+        operator.setPassword(new BCryptPasswordEncoder().encode(operatorPassword));
+
+        userRepository.save(operator);
+
+        System.out.println("### OPERADOR ATUALIZADO ###");
+        System.out.println("Login: " + operatorEmail);
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.mailtasksai.backend.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.query.ReturnableType;
+import org.hibernate.query.sqm.function.AbstractSqmSelfRenderingFunctionDescriptor;
+import org.hibernate.query.sqm.produce.function.StandardArgumentsValidators;
+import org.hibernate.query.sqm.produce.function.StandardFunctionArgumentTypeResolvers;
+import org.hibernate.query.sqm.produce.function.StandardFunctionReturnTypeResolvers;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.spi.SqlAppender;
+import org.hibernate.sql.ast.tree.SqlAstNode;
+import org.hibernate.sql.ast.tree.expression.ColumnReference;
+import org.hibernate.sql.ast.tree.expression.Expression;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.List;
+
+// Funções de busca textual do Postgres para HQL/Criteria (registradas em META-INF/services).
+// A consulta passa por websearch_to_tsquery, que aceita o que o usuário digita ("frete curitiba",
+// "nota fiscal" -boleto, a OR b) sem erro de sintaxe. Usadas por TaskSpecifications#withFullTextSearch.
+// A coluna search_vector não é mapeada em Task (seria lida junto com cada tarefa): o primeiro argumento
+// é o id da tarefa, usado só para descobrir o alias da tabela tasks no SQL gerado.
+public class FullTextSearchFunctions implements FunctionContributor {
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Boolean> booleanType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN);
+        BasicType<Double> doubleType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry().resolve(StandardBasicTypes.DOUBLE);
+
+        functionContributions.getFunctionRegistry().register("fts_match", new TaskSearchFunction(
+                "fts_match", "(", ".search_vector @@ websearch_to_tsquery('portuguese', ", "))", booleanType));
+        functionContributions.getFunctionRegistry().register("fts_rank", new TaskSearchFunction(
+                "fts_rank", "ts_rank_cd(", ".search_vector, websearch_to_tsquery('portuguese', ", "))", doubleType));
+    }
+
+    private static class TaskSearchFunction extends AbstractSqmSelfRenderingFunctionDescriptor {
+
+        private final String prefix;
+        private final String infix;
+        private final String suffix;
+
+        TaskSearchFunction(String name, String prefix, String infix, String suffix, BasicType<?> returnType) {
+            super(name, StandardArgumentsValidators.exactly(2),
+                    StandardFunctionReturnTypeResolvers.invariant(returnType), StandardFunctionArgumentTypeResolvers.NULL);
+            this.prefix = prefix;
+            this.infix = infix;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public void render(SqlAppender sqlAppender, List<? extends SqlAstNode> arguments,
+                           ReturnableType<?> returnType, SqlAstTranslator<?> walker) {
+            ColumnReference taskId = ((Expression) arguments.get(0)).getColumnReference();
+            if (taskId == null || taskId.getQualifier() == null) {
+                throw new IllegalArgumentException(getName() + " espera o id da tarefa como primeiro argumento");
+            }
+            sqlAppender.appendSql(prefix);
+            sqlAppender.appendSql(taskId.getQualifier());
+            sqlAppender.appendSql(infix);
+            arguments.get(1).accept(walker);
+            sqlAppender.appendSql(suffix);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.mailtasksai.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+// Camada única de HTTP de saída. Um HttpClient do JDK compartilhado (keep-alive, HTTP/2 quando o
+// servidor aceita, connect timeout) e um RestTemplate por destino, cada um com seu read timeout e
+// limite de requisições simultâneas. Nenhuma chamada externa fica pendurada indefinidamente.
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Bean(destroyMethod = "close")
+    public HttpClient outboundHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-out-", 0).factory()))
+                .build();
+    }
+
+    // Microsoft Graph: mensagens, assinaturas e envio de e-mail
+    @Bean
+    public RestTemplate graphRestTemplate(HttpClient outboundHttpClient,
+                                          @Value("${http.graph.read-timeout-ms:30000}") long readTimeoutMs,
+                                          @Value("${http.graph.max-concurrent:32}") int maxConcurrent,
+                                          @Value("${http.graph.gzip:true}") boolean gzip) {
+        RestTemplate restTemplate = restTemplate("graph.microsoft.com", outboundHttpClient, readTimeoutMs, maxConcurrent);
+        if (gzip) {
+            restTemplate.getInterceptors().add(new GzipResponseInterceptor());
+        }
+        return restTemplate;
+    }
+
+    @Bean
+    public RestTemplate openAiRestTemplate(HttpClient outboundHttpClient,
+                                           @Value("${http.openai.read-timeout-ms:60000}") long readTimeoutMs,
+                                           @Value("${http.openai.max-concurrent:16}") int maxConcurrent) {
+        return restTemplate("api.openai.com", outboundHttpClient, readTimeoutMs, maxConcurrent);
+    }
+
+    // login.microsoftonline.com: troca de código e renovação de tokens
+    @Bean
+    public RestTemplate identityRestTemplate(HttpClient outboundHttpClient,
+                                             @Value("${http.identity.read-timeout-ms:10000}") long readTimeoutMs,
+                                             @Value("${http.identity.max-concurrent:8}") int maxConcurrent) {
+        return restTemplate("login.microsoftonline.com", outboundHttpClient, readTimeoutMs, maxConcurrent);
+    }
+
+    private RestTemplate restTemplate(String destination, HttpClient httpClient, long readTimeoutMs, int maxConcurrent) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(
+                new HostConcurrencyLimiter(destination, maxConcurrent, Duration.ofMillis(readTimeoutMs)));
+        return restTemplate;
+    }
+}
@@ -0,0 +1,27 @@
+package com.mailtasksai.backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class IngestionConfig {
+
+    // Uma virtual thread por empresa; o limite global de concorrência fica no EmailListenerService
+    @Bean(destroyMethod = "close")
+    public ExecutorService mailboxPollingExecutor() {
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("mailbox-poll-", 0).factory()
+        );
+    }
+
+    // Chamadas à OpenAI em paralelo; quem limita a concorrência de verdade é o OpenAIRateLimiter
+    @Bean(destroyMethod = "close")
+    public ExecutorService aiClassificationExecutor() {
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("ai-classify-", 0).factory()
+        );
+    }
+}
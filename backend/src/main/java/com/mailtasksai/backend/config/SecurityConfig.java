@@ -32,6 +32,11 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/api/graph/notifications").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Métricas e consumo de IA mostram dados de todas as empresas: só operadores da plataforma.
+                        // O "admin" de uma empresa continua sem acesso
+                        .requestMatchers("/actuator/**").hasRole("OPERATOR")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
@@ -62,7 +62,7 @@ public class AuthController {
             return ResponseEntity.status(401).body(Map.of("error", "Senha incorreta"));
         }
 
-        String token = jwtService.generateToken(String.valueOf(user.getCompany().getId()));
+        String token = jwtService.generateToken(String.valueOf(user.getCompany().getId()), user.getRole());
         System.out.println("SUCESSO: Token gerado com Company ID: " + user.getCompany().getId());
 
         return ResponseEntity.ok(Map.of(
@@ -0,0 +1,52 @@
+package com.mailtasksai.backend.controller;
+
+import com.mailtasksai.backend.dto.GraphNotification;
+import com.mailtasksai.backend.dto.GraphNotificationPayload;
+import com.mailtasksai.backend.service.GraphSubscriptionService;
+import com.mailtasksai.backend.service.IngestionWorkQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/graph/notifications")
+@Slf4j
+public class GraphWebhookController {
+
+    @Autowired
+    private GraphSubscriptionService subscriptionService;
+
+    @Autowired
+    private IngestionWorkQueue ingestionWorkQueue;
+
+    @PostMapping
+    public ResponseEntity<String> receive(@RequestParam(required = false) String validationToken,
+                                          @RequestBody(required = false) GraphNotificationPayload payload) {
+        // Handshake de criação da assinatura: o Graph espera o token de volta em text/plain
+        if (validationToken != null) {
+            return ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(validationToken);
+        }
+
+        if (payload == null || payload.getValue() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        for (GraphNotification notification : payload.getValue()) {
+            Optional<Long> companyId = subscriptionService.resolveCompanyId(notification);
+            if (companyId.isEmpty()) {
+                log.warn("Notificação do Graph rejeitada (assinatura {} ou clientState inválidos)", notification.getSubscriptionId());
+                continue;
+            }
+
+            if (notification.getResourceData() != null && notification.getResourceData().getId() != null) {
+                ingestionWorkQueue.enqueue(companyId.get(), notification.getResourceData().getId());
+            }
+        }
+
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.mailtasksai.backend.controller;
+
+import com.mailtasksai.backend.dto.ClassificationCacheStats;
+import com.mailtasksai.backend.dto.LocalClassifierStats;
+import com.mailtasksai.backend.dto.PipelineStageStats;
+import com.mailtasksai.backend.service.AIProviderRouter;
+import com.mailtasksai.backend.service.ClassificationCache;
+import com.mailtasksai.backend.service.IngestionPipeline;
+import com.mailtasksai.backend.service.LocalTaskClassifier;
+import com.mailtasksai.backend.util.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/ingestion")
+public class IngestionController {
+
+    @Autowired
+    private IngestionPipeline ingestionPipeline;
+
+    @Autowired
+    private ClassificationCache classificationCache;
+
+    @Autowired
+    private LocalTaskClassifier localTaskClassifier;
+
+    @Autowired
+    private AIProviderRouter aiProviderRouter;
+
+    @GetMapping("/pipeline")
+    public ResponseEntity<Map<String, List<PipelineStageStats>>> getPipelineStats() {
+        return ResponseEntity.ok(Map.of("stages", ingestionPipeline.getStats()));
+    }
+
+    @GetMapping("/ai-cache")
+    public ResponseEntity<ClassificationCacheStats> getClassificationCacheStats() {
+        return ResponseEntity.ok(classificationCache.getStats());
+    }
+
+    @GetMapping("/local-classifier")
+    public ResponseEntity<LocalClassifierStats> getLocalClassifierStats() {
+        return ResponseEntity.ok(localTaskClassifier.getStats());
+    }
+
+    // Estado do circuit breaker de cada provedor de IA, na ordem da cadeia
+    @GetMapping("/ai-providers")
+    public ResponseEntity<Map<String, CircuitBreaker.State>> getAIProviders() {
+        return ResponseEntity.ok(aiProviderRouter.getCircuitStates());
+    }
+}
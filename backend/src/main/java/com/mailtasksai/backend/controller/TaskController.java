@@ -2,6 +2,7 @@ package com.mailtasksai.backend.controller;
 
 import com.mailtasksai.backend.dto.TaskRequest;
 import com.mailtasksai.backend.model.Task;
+import com.mailtasksai.backend.model.TaskMessage;
 import com.mailtasksai.backend.model.UrgenciaEnum;
 import com.mailtasksai.backend.model.TaskStatus;
 import com.mailtasksai.backend.service.TaskService;
@@ -12,10 +13,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/tasks")
@@ -54,6 +57,13 @@ public class TaskController {
         return ResponseEntity.ok(task);
     }
 
+    @GetMapping("/{taskId}/messages")
+    public ResponseEntity<List<TaskMessage>> getTaskMessages(@PathVariable Long taskId) {
+        // O subject do JWT é o ID da empresa
+        Long companyId = Long.valueOf((String) SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        return ResponseEntity.ok(taskService.getTaskMessages(companyId, taskId));
+    }
+
     @PatchMapping("/{taskId}/reply")
     public ResponseEntity<Task> sendReply(@PathVariable Long taskId, @RequestBody String message) {
         Task task = taskService.sendReply(taskId, message);
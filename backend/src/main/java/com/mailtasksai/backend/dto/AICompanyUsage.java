@@ -0,0 +1,31 @@
+package com.mailtasksai.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Consumo de IA somado de uma empresa no período consultado
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AICompanyUsage {
+
+    @JsonProperty("company_id")
+    private Long companyId;
+
+    @JsonProperty("company_name")
+    private String companyName;
+
+    @JsonProperty("request_count")
+    private long requestCount;
+
+    @JsonProperty("prompt_tokens")
+    private long promptTokens;
+
+    @JsonProperty("completion_tokens")
+    private long completionTokens;
+
+    @JsonProperty("cost_usd")
+    private double costUsd;
+}
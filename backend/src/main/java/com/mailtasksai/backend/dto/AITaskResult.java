@@ -1,7 +1,9 @@
 package com.mailtasksai.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mailtasksai.backend.model.ClassificationSource;
 import com.mailtasksai.backend.model.UrgenciaEnum;
 import lombok.Data;
 
@@ -20,4 +22,8 @@ public class AITaskResult {
 
     @JsonProperty("confidence")
     private Double confidence;
+
+    // Preenchido por quem produziu o resultado; não faz parte do JSON da IA nem do cache
+    @JsonIgnore
+    private ClassificationSource source;
 }
\ No newline at end of file
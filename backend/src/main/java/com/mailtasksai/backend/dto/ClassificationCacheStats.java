@@ -0,0 +1,33 @@
+package com.mailtasksai.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClassificationCacheStats {
+
+    @JsonProperty("memory_entries")
+    private int memoryEntries;
+
+    @JsonProperty("memory_hits")
+    private long memoryHits;
+
+    @JsonProperty("database_hits")
+    private long databaseHits;
+
+    private long misses;
+
+    @JsonProperty("hit_rate")
+    private double hitRate;
+
+    // Chamadas à OpenAI evitadas e estimativa de tokens de prompt economizados
+    @JsonProperty("calls_saved")
+    private long callsSaved;
+
+    @JsonProperty("estimated_tokens_saved")
+    private long estimatedTokensSaved;
+}
@@ -1,6 +1,8 @@
 package com.mailtasksai.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import java.time.LocalDateTime;
 
@@ -10,6 +12,18 @@ public class EmailMessage {
     private String id;
     private String subject;
     private EmailMessageBody body;
+    // Só a parte nova da mensagem, sem o histórico citado; vem apenas quando pedido no $select
+    private EmailMessageBody uniqueBody;
     private EmailRecipient from;
     private LocalDateTime receivedDateTime;
-}
\ No newline at end of file
+    // Mesma conversa (thread) do Outlook; as respostas são anexadas à tarefa aberta dela
+    private String conversationId;
+
+    // Presente apenas em respostas de delta query, quando a mensagem foi removida da pasta
+    @JsonProperty("@removed")
+    private Object removed;
+
+    // O decoder em streaming não leu o corpo porque o ID já parecia conhecido
+    @JsonIgnore
+    private boolean bodySkipped;
+}
@@ -1,5 +1,6 @@
 package com.mailtasksai.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 
@@ -8,4 +9,9 @@ import lombok.Data;
 public class EmailMessageBody {
     private String content;
     private String contentType; // Ex: "HTML" ou "Text"
+
+    @JsonIgnore
+    public boolean isHtml() {
+        return !"text".equalsIgnoreCase(contentType);
+    }
 }
\ No newline at end of file
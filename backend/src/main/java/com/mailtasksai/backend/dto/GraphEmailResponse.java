@@ -1,6 +1,7 @@
 package com.mailtasksai.backend.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import java.util.List;
 
@@ -8,4 +9,10 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true) // Ignora campos que não mapeamos
 public class GraphEmailResponse {
     private List<EmailMessage> value;
-}
\ No newline at end of file
+
+    @JsonProperty("@odata.nextLink")
+    private String nextLink;
+
+    @JsonProperty("@odata.deltaLink")
+    private String deltaLink;
+}
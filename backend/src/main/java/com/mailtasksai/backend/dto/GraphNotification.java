@@ -0,0 +1,14 @@
+package com.mailtasksai.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GraphNotification {
+    private String subscriptionId;
+    private String clientState;
+    private String changeType;
+    private String resource;
+    private GraphNotificationResourceData resourceData;
+}
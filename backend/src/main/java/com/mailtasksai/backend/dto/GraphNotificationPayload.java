@@ -0,0 +1,12 @@
+package com.mailtasksai.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GraphNotificationPayload {
+    private List<GraphNotification> value;
+}
@@ -0,0 +1,10 @@
+package com.mailtasksai.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GraphNotificationResourceData {
+    private String id; // ID da mensagem no Graph
+}
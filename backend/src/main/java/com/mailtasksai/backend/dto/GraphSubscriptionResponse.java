@@ -0,0 +1,14 @@
+package com.mailtasksai.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GraphSubscriptionResponse {
+    private String id;
+    private String resource;
+    private OffsetDateTime expirationDateTime;
+}
@@ -0,0 +1,26 @@
+package com.mailtasksai.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocalClassifierStats {
+
+    @JsonProperty("training_examples")
+    private long trainingExamples;
+
+    // Classificados localmente sem chamar a OpenAI
+    @JsonProperty("answered_locally")
+    private long answeredLocally;
+
+    // Abaixo do limiar de confiança, enviados para a OpenAI
+    @JsonProperty("sent_to_llm")
+    private long sentToLlm;
+
+    @JsonProperty("confidence_threshold")
+    private double confidenceThreshold;
+}
@@ -8,4 +8,5 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class OpenAIResponse {
     private List<OpenAIChoice> choices;
+    private OpenAIUsage usage;
 }
\ No newline at end of file
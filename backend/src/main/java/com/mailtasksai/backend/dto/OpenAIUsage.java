@@ -0,0 +1,19 @@
+package com.mailtasksai.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OpenAIUsage {
+
+    @JsonProperty("prompt_tokens")
+    private Integer promptTokens;
+
+    @JsonProperty("completion_tokens")
+    private Integer completionTokens;
+
+    @JsonProperty("total_tokens")
+    private Integer totalTokens;
+}
@@ -0,0 +1,28 @@
+package com.mailtasksai.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipelineStageStats {
+
+    private String stage;
+
+    @JsonProperty("queue_depth")
+    private int queueDepth;
+
+    @JsonProperty("queue_capacity")
+    private int queueCapacity;
+
+    private int workers;
+
+    @JsonProperty("processed_total")
+    private long processedTotal;
+
+    @JsonProperty("throughput_per_second")
+    private double throughputPerSecond;
+}
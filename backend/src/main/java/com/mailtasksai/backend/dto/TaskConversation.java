@@ -0,0 +1,16 @@
+package com.mailtasksai.backend.dto;
+
+import com.mailtasksai.backend.model.UrgenciaEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Projeção da tarefa aberta de uma conversa do Outlook, usada para anexar as respostas a ela
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskConversation {
+    private Long id;
+    private String conversationId;
+    private UrgenciaEnum urgencia;
+}
@@ -0,0 +1,19 @@
+package com.mailtasksai.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Projeção de uma tarefa usada para carregar o índice de quase-duplicatas
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskFingerprint {
+    private Long id;
+    private String emailMessageId;
+    private String emailSubject;
+    private Long contentFingerprint;
+    private LocalDateTime receivedAt;
+}
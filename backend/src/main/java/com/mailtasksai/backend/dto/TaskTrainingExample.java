@@ -0,0 +1,20 @@
+package com.mailtasksai.backend.dto;
+
+import com.mailtasksai.backend.model.UrgenciaEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Projeção de uma tarefa usada para treinar o classificador local
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskTrainingExample {
+    private Long id;
+    private Long companyId;
+    private String emailSubject;
+    private String emailBody;
+    private String fromEmail;
+    private UrgenciaEnum urgencia;
+    private String categoriaSugerida;
+}
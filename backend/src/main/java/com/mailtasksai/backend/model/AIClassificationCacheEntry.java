@@ -0,0 +1,35 @@
+package com.mailtasksai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Camada persistente do cache de classificação: resultado da IA por hash de conteúdo.
+// Lida e escrita pelo ClassificationCacheRepository via JDBC.
+@Entity
+@Table(name = "ai_classification_cache", indexes = {
+        @Index(name = "idx_ai_cache_created_at", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+public class AIClassificationCacheEntry {
+
+    // SHA-256 (hex) de assunto normalizado + domínio do remetente + corpo normalizado
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "result_json", nullable = false, columnDefinition = "TEXT")
+    private String resultJson;
+
+    @Column(name = "hit_count", nullable = false)
+    private long hitCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_hit_at")
+    private LocalDateTime lastHitAt;
+}
@@ -0,0 +1,52 @@
+package com.mailtasksai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Consumo diário de tokens e custo estimado por empresa, provedor e modelo.
+// Acumulado em memória pelo AIUsageLedger e gravado em lote pelo AITokenUsageRepository via JDBC.
+@Entity
+@Table(name = "ai_token_usage", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ai_token_usage", columnNames = {"company_id", "usage_date", "provider", "model"})
+}, indexes = {
+        @Index(name = "idx_ai_token_usage_date", columnList = "usage_date")
+})
+@Data
+@NoArgsConstructor
+public class AITokenUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    @Column(nullable = false, length = 50)
+    private String provider;
+
+    @Column(nullable = false, length = 100)
+    private String model;
+
+    @Column(name = "request_count", nullable = false)
+    private long requestCount;
+
+    @Column(name = "prompt_tokens", nullable = false)
+    private long promptTokens;
+
+    @Column(name = "completion_tokens", nullable = false)
+    private long completionTokens;
+
+    @Column(name = "cost_usd", nullable = false)
+    private double costUsd;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
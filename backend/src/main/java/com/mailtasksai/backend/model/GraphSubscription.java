@@ -0,0 +1,45 @@
+package com.mailtasksai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "graph_subscriptions")
+@Data
+@NoArgsConstructor
+public class GraphSubscription {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "company_id", nullable = false, unique = true)
+    private Company company;
+
+    @Column(name = "subscription_id", nullable = false, unique = true)
+    private String subscriptionId;
+
+    // Segredo enviado pelo Graph em cada notificação; usado para validar a origem
+    @Column(name = "client_state", nullable = false)
+    private String clientState;
+
+    @Column(nullable = false)
+    private String resource;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,26 @@
+package com.mailtasksai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Instância do backend participando da ingestão. Cada nó renova o heartbeat_at periodicamente;
+// nós sem heartbeat recente deixam de receber empresas. Escrita pelo MailboxLeaseRepository via JDBC.
+@Entity
+@Table(name = "ingestion_nodes")
+@Data
+@NoArgsConstructor
+public class IngestionNode {
+
+    @Id
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+}
@@ -0,0 +1,54 @@
+package com.mailtasksai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+// Fila durável de mensagens a (re)processar. Lida e escrita pelo IngestionWorkItemRepository via JDBC
+// (FOR UPDATE SKIP LOCKED); o mapeamento existe para consultas administrativas. O índice parcial da
+// fila (idx_ingestion_work_due) fica nas migrações em db/migration.
+@Entity
+@Table(name = "ingestion_work_items",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_ingestion_work_company_message", columnNames = {"company_id", "message_id"})
+        })
+@Data
+@NoArgsConstructor
+public class IngestionWorkItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "company_id", nullable = false)
+    private Company company;
+
+    @Column(name = "message_id", nullable = false)
+    private String messageId;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private WorkItemStatus status;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,28 @@
+package com.mailtasksai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Lease de polling de uma caixa: enquanto não expira, só o nó dono consulta a empresa.
+// Escrita pelo MailboxLeaseRepository via JDBC.
+@Entity
+@Table(name = "mailbox_leases", indexes = {
+        @Index(name = "idx_mailbox_leases_node", columnList = "node_id")
+})
+@Data
+@NoArgsConstructor
+public class MailboxLease {
+
+    @Id
+    @Column(name = "company_id")
+    private Long companyId;
+
+    @Column(name = "node_id", nullable = false, length = 100)
+    private String nodeId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,54 @@
+package com.mailtasksai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "mailbox_sync_state")
+@Data
+@NoArgsConstructor
+public class MailboxSyncState {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "company_id", nullable = false, unique = true)
+    private Company company;
+
+    // URL @odata.deltaLink devolvida pelo Graph na última sincronização completa
+    @Column(name = "delta_link", columnDefinition = "TEXT")
+    private String deltaLink;
+
+    // Maior receivedDateTime (UTC) já processado; usado no modo "window" e para reiniciar o delta
+    @Column(name = "last_received_at")
+    private LocalDateTime lastReceivedAt;
+
+    @Column(name = "last_synced_at")
+    private LocalDateTime lastSyncedAt;
+
+    // Cadência adaptativa: quando a caixa deve ser consultada de novo e com que intervalo
+    @Column(name = "next_poll_at")
+    private LocalDateTime nextPollAt;
+
+    @Column(name = "poll_interval_seconds")
+    private Integer pollIntervalSeconds;
+
+    // Média móvel exponencial de mensagens recebidas por hora
+    @Column(name = "arrival_rate_per_hour")
+    private Double arrivalRatePerHour;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -1,5 +1,6 @@
 package com.mailtasksai.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -10,7 +11,10 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tasks")
+// Os índices das consultas (inclusive os parciais e o GIN da busca) ficam nas migrações em db/migration
+@Table(name = "tasks", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_tasks_company_message", columnNames = {"company_id", "email_message_id"})
+})
 @Data
 @NoArgsConstructor
 public class Task {
@@ -27,6 +31,10 @@ public class Task {
     @Column(name = "email_message_id", nullable = false)
     private String emailMessageId;
 
+    // conversationId do Graph; nulo em tarefas antigas
+    @Column(name = "conversation_id", length = 512)
+    private String conversationId;
+
     @Column(name = "resumo_tarefa", nullable = false, columnDefinition = "TEXT")
     private String resumoTarefa;
 
@@ -67,6 +75,16 @@ public class Task {
     @Column(name = "ai_confidence")
     private Double aiConfidence;
 
+    // Quem classificou a tarefa; nulo em tarefas antigas (sempre pela OpenAI)
+    @Column(name = "classification_source", length = 20)
+    @Enumerated(EnumType.STRING)
+    private ClassificationSource classificationSource;
+
+    // SimHash do conteúdo, usado para anexar e-mails quase idênticos a esta tarefa (ver NearDuplicateIndex)
+    @JsonIgnore
+    @Column(name = "content_fingerprint")
+    private Long contentFingerprint;
+
     @Column(name = "completion_message", columnDefinition = "TEXT")
     private String completionMessage;
 
@@ -0,0 +1,49 @@
+package com.mailtasksai.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// E-mail anexado a uma tarefa já existente em vez de virar tarefa nova (lembrete, encaminhamento,
+// o mesmo pedido enviado para várias pessoas). Gravado pelo TaskMessageRepository via JDBC.
+@Entity
+@Table(name = "task_messages", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_task_messages_company_message", columnNames = {"company_id", "email_message_id"})
+}, indexes = {
+        @Index(name = "idx_task_messages_task", columnList = "task_id")
+})
+@Data
+@NoArgsConstructor
+public class TaskMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "email_message_id", nullable = false)
+    private String emailMessageId;
+
+    @Column(name = "from_email")
+    private String fromEmail;
+
+    @Column(name = "email_subject", columnDefinition = "TEXT")
+    private String emailSubject;
+
+    @Column(name = "received_at")
+    private LocalDateTime receivedAt;
+
+    // Similaridade entre as impressões digitais (SimHash) do e-mail e da tarefa, de 0 a 1
+    @Column
+    private Double similarity;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,6 @@
+package com.mailtasksai.backend.model;
+
+public enum WorkItemStatus {
+    PENDING,
+    DEAD
+}
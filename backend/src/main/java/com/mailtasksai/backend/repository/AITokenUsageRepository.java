@@ -0,0 +1,69 @@
+package com.mailtasksai.backend.repository;
+
+import com.mailtasksai.backend.dto.AICompanyUsage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+// Acesso à tabela ai_token_usage. O AIUsageLedger grava deltas acumulados; o upsert soma ao que já existe.
+@Repository
+public class AITokenUsageRepository {
+
+    public record UsageDelta(Long companyId, LocalDate usageDate, String provider, String model,
+                             long requestCount, long promptTokens, long completionTokens, double costUsd) {}
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void addAll(List<UsageDelta> deltas) {
+        if (deltas.isEmpty()) return;
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO ai_token_usage (company_id, usage_date, provider, model,
+                    request_count, prompt_tokens, completion_tokens, cost_usd, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, LOCALTIMESTAMP)
+                ON CONFLICT (company_id, usage_date, provider, model) DO UPDATE SET
+                    request_count = ai_token_usage.request_count + EXCLUDED.request_count,
+                    prompt_tokens = ai_token_usage.prompt_tokens + EXCLUDED.prompt_tokens,
+                    completion_tokens = ai_token_usage.completion_tokens + EXCLUDED.completion_tokens,
+                    cost_usd = ai_token_usage.cost_usd + EXCLUDED.cost_usd,
+                    updated_at = EXCLUDED.updated_at
+                """, deltas, deltas.size(), (ps, delta) -> {
+            ps.setLong(1, delta.companyId());
+            ps.setDate(2, Date.valueOf(delta.usageDate()));
+            ps.setString(3, delta.provider());
+            ps.setString(4, delta.model());
+            ps.setLong(5, delta.requestCount());
+            ps.setLong(6, delta.promptTokens());
+            ps.setLong(7, delta.completionTokens());
+            ps.setDouble(8, delta.costUsd());
+        });
+    }
+
+    // Empresas que mais gastaram nos últimos "days" dias (incluindo hoje), da mais cara para a mais barata
+    public List<AICompanyUsage> findTopCompanies(int days, int limit) {
+        return jdbcTemplate.query("""
+                SELECT u.company_id, c.name,
+                       SUM(u.request_count) AS request_count,
+                       SUM(u.prompt_tokens) AS prompt_tokens,
+                       SUM(u.completion_tokens) AS completion_tokens,
+                       SUM(u.cost_usd) AS cost_usd
+                FROM ai_token_usage u
+                LEFT JOIN companies c ON c.id = u.company_id
+                WHERE u.usage_date > CURRENT_DATE - ?
+                GROUP BY u.company_id, c.name
+                ORDER BY cost_usd DESC, SUM(u.prompt_tokens + u.completion_tokens) DESC
+                LIMIT ?
+                """, (rs, rowNum) -> new AICompanyUsage(
+                        rs.getLong("company_id"),
+                        rs.getString("name"),
+                        rs.getLong("request_count"),
+                        rs.getLong("prompt_tokens"),
+                        rs.getLong("completion_tokens"),
+                        rs.getDouble("cost_usd")),
+                days, limit);
+    }
+}
@@ -0,0 +1,41 @@
+package com.mailtasksai.backend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+// Acesso à tabela ai_classification_cache. Leitura já contabiliza o acerto numa única instrução.
+@Repository
+public class ClassificationCacheRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public Optional<String> findFresh(String contentHash, long ttlDays) {
+        List<String> results = jdbcTemplate.queryForList("""
+                UPDATE ai_classification_cache
+                SET hit_count = hit_count + 1, last_hit_at = LOCALTIMESTAMP
+                WHERE content_hash = ? AND created_at > LOCALTIMESTAMP - ? * INTERVAL '1 day'
+                RETURNING result_json
+                """, String.class, contentHash, ttlDays);
+        return results.stream().findFirst();
+    }
+
+    public void save(String contentHash, String resultJson) {
+        jdbcTemplate.update("""
+                INSERT INTO ai_classification_cache (content_hash, result_json, hit_count, created_at)
+                VALUES (?, ?, 0, LOCALTIMESTAMP)
+                ON CONFLICT (content_hash) DO UPDATE SET
+                    result_json = EXCLUDED.result_json,
+                    created_at = EXCLUDED.created_at
+                """, contentHash, resultJson);
+    }
+
+    public int deleteOlderThan(long ttlDays) {
+        return jdbcTemplate.update(
+                "DELETE FROM ai_classification_cache WHERE created_at <= LOCALTIMESTAMP - ? * INTERVAL '1 day'", ttlDays);
+    }
+}
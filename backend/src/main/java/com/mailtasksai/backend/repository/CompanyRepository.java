@@ -15,4 +15,7 @@ public interface CompanyRepository extends JpaRepository<Company, Long> {
 
     @Query("SELECT c FROM Company c JOIN FETCH c.tokens t")
     List<Company> findAllConnectedCompanies();
+
+    @Query("SELECT c FROM Company c JOIN FETCH c.tokens t WHERE c.id = :companyId")
+    Optional<Company> findConnectedCompany(Long companyId);
 }
\ No newline at end of file
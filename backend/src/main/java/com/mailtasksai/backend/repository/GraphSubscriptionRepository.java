@@ -0,0 +1,19 @@
+package com.mailtasksai.backend.repository;
+
+import com.mailtasksai.backend.model.GraphSubscription;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface GraphSubscriptionRepository extends JpaRepository<GraphSubscription, Long> {
+
+    Optional<GraphSubscription> findBySubscriptionId(String subscriptionId);
+
+    Optional<GraphSubscription> findByCompanyId(Long companyId);
+
+    @Transactional
+    void deleteByCompanyId(Long companyId);
+}
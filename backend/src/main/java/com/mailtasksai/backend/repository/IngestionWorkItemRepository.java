@@ -0,0 +1,105 @@
+package com.mailtasksai.backend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Acesso à tabela ingestion_work_items. Toda a lógica de tempo usa LOCALTIMESTAMP do banco,
+// para que vários nós concordem sobre o que está vencido independentemente do relógio de cada um.
+@Repository
+public class IngestionWorkItemRepository {
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${ingestion.retry.base-delay-seconds:30}")
+    private long baseDelaySeconds;
+
+    @Value("${ingestion.retry.max-delay-seconds:3600}")
+    private long maxDelaySeconds;
+
+    @Value("${ingestion.retry.max-attempts:10}")
+    private int maxAttempts;
+
+    public record ClaimedWorkItem(Long id, Long companyId, String messageId, int attempts) {}
+
+    // Mensagem avisada por webhook: processar assim que possível. Se já estiver na fila, nada muda.
+    public void enqueue(Long companyId, String messageId) {
+        jdbcTemplate.update("""
+                INSERT INTO ingestion_work_items (company_id, message_id, attempts, next_attempt_at, status, created_at, updated_at)
+                VALUES (?, ?, 0, LOCALTIMESTAMP, 'PENDING', LOCALTIMESTAMP, LOCALTIMESTAMP)
+                ON CONFLICT (company_id, message_id) DO NOTHING
+                """, companyId, messageId);
+    }
+
+    // Registra uma tentativa que falhou e agenda a próxima com backoff exponencial (com jitter de ±20%).
+    // Depois de max-attempts a mensagem vai para DEAD e deixa de ser retentada.
+    public void scheduleRetry(Long companyId, String messageId, String error) {
+        scheduleRetry(companyId, messageId, error, null);
+    }
+
+    // retryAfterSeconds, quando informado, substitui o backoff calculado se for maior (429 usa postpone)
+    public void scheduleRetry(Long companyId, String messageId, String error, Long retryAfterSeconds) {
+        String truncatedError = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        long minimumDelay = retryAfterSeconds != null ? retryAfterSeconds : 0;
+
+        jdbcTemplate.update("""
+                INSERT INTO ingestion_work_items (company_id, message_id, attempts, next_attempt_at, last_error, status, created_at, updated_at)
+                VALUES (?, ?, 1, LOCALTIMESTAMP + GREATEST(?, ?) * INTERVAL '1 second', ?, 'PENDING', LOCALTIMESTAMP, LOCALTIMESTAMP)
+                ON CONFLICT (company_id, message_id) DO UPDATE SET
+                    attempts = ingestion_work_items.attempts + 1,
+                    next_attempt_at = LOCALTIMESTAMP + GREATEST(?,
+                        LEAST(?, ? * POWER(2, ingestion_work_items.attempts)) * (0.8 + random() * 0.4)) * INTERVAL '1 second',
+                    last_error = EXCLUDED.last_error,
+                    status = CASE WHEN ingestion_work_items.attempts + 1 >= ? THEN 'DEAD' ELSE 'PENDING' END,
+                    updated_at = LOCALTIMESTAMP
+                """,
+                companyId, messageId, minimumDelay, baseDelaySeconds, truncatedError,
+                minimumDelay, maxDelaySeconds, baseDelaySeconds, maxAttempts);
+    }
+
+    // Adia sem contar tentativa (ex.: 429 da OpenAI): throttling prolongado não pode levar a mensagem a DEAD.
+    // O atraso só cresce (até +20% de jitter), para os itens adiados juntos não voltarem todos no mesmo instante.
+    public void postpone(Long companyId, String messageId, String reason, long delaySeconds) {
+        String truncatedReason = reason != null && reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason;
+        jdbcTemplate.update("""
+                INSERT INTO ingestion_work_items (company_id, message_id, attempts, next_attempt_at, last_error, status, created_at, updated_at)
+                VALUES (?, ?, 0, LOCALTIMESTAMP + ? * (1 + random() * 0.2) * INTERVAL '1 second', ?, 'PENDING', LOCALTIMESTAMP, LOCALTIMESTAMP)
+                ON CONFLICT (company_id, message_id) DO UPDATE SET
+                    next_attempt_at = EXCLUDED.next_attempt_at,
+                    last_error = EXCLUDED.last_error,
+                    updated_at = LOCALTIMESTAMP
+                """, companyId, messageId, delaySeconds, truncatedReason);
+    }
+
+    // Reivindica itens vencidos sem bloquear outros nós (SKIP LOCKED). O next_attempt_at é empurrado
+    // para frente pelo tempo do lease: se o nó cair no meio do processamento, o item volta sozinho.
+    // ANY(ARRAY(...)) em vez de IN (subquery): com o LIMIT como parâmetro o plano genérico do IN
+    // virava hash join sobre a tabela inteira; assim os ids reivindicados vão direto na chave primária.
+    public List<ClaimedWorkItem> claimDue(int limit, long leaseSeconds) {
+        return jdbcTemplate.query("""
+                UPDATE ingestion_work_items
+                SET next_attempt_at = LOCALTIMESTAMP + ? * INTERVAL '1 second', updated_at = LOCALTIMESTAMP
+                WHERE id = ANY(ARRAY(
+                    SELECT id FROM ingestion_work_items
+                    WHERE status = 'PENDING' AND next_attempt_at <= LOCALTIMESTAMP
+                    ORDER BY next_attempt_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                ))
+                RETURNING id, company_id, message_id, attempts
+                """,
+                (rs, rowNum) -> new ClaimedWorkItem(
+                        rs.getLong("id"), rs.getLong("company_id"), rs.getString("message_id"), rs.getInt("attempts")),
+                leaseSeconds, limit);
+    }
+
+    public void complete(Long id) {
+        jdbcTemplate.update("DELETE FROM ingestion_work_items WHERE id = ?", id);
+    }
+}
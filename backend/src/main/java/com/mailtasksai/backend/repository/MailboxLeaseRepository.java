@@ -0,0 +1,67 @@
+package com.mailtasksai.backend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Acesso às tabelas ingestion_nodes e mailbox_leases. Assim como na fila de ingestão,
+// o tempo vem sempre do LOCALTIMESTAMP do banco para não depender do relógio de cada nó.
+@Repository
+public class MailboxLeaseRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void heartbeat(String nodeId) {
+        jdbcTemplate.update("""
+                INSERT INTO ingestion_nodes (node_id, started_at, heartbeat_at)
+                VALUES (?, LOCALTIMESTAMP, LOCALTIMESTAMP)
+                ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = LOCALTIMESTAMP
+                """, nodeId);
+    }
+
+    public List<String> findLiveNodes(long ttlSeconds) {
+        return jdbcTemplate.queryForList("""
+                SELECT node_id FROM ingestion_nodes
+                WHERE heartbeat_at > LOCALTIMESTAMP - ? * INTERVAL '1 second'
+                """, String.class, ttlSeconds);
+    }
+
+    // Remove nós que pararam de mandar heartbeat (processo morto) junto com seus leases
+    public void deleteStaleNodes(long ttlSeconds) {
+        jdbcTemplate.update("""
+                DELETE FROM mailbox_leases WHERE node_id IN (
+                    SELECT node_id FROM ingestion_nodes
+                    WHERE heartbeat_at <= LOCALTIMESTAMP - ? * INTERVAL '1 second'
+                )
+                """, ttlSeconds);
+        jdbcTemplate.update("DELETE FROM ingestion_nodes WHERE heartbeat_at <= LOCALTIMESTAMP - ? * INTERVAL '1 second'",
+                ttlSeconds);
+    }
+
+    public void removeNode(String nodeId) {
+        jdbcTemplate.update("DELETE FROM mailbox_leases WHERE node_id = ?", nodeId);
+        jdbcTemplate.update("DELETE FROM ingestion_nodes WHERE node_id = ?", nodeId);
+    }
+
+    // Pega (ou renova) o lease da empresa. Só tem sucesso se não houver lease, se o lease já for
+    // deste nó ou se o lease de outro nó tiver expirado.
+    public boolean tryAcquire(Long companyId, String nodeId, long leaseSeconds) {
+        List<Long> acquired = jdbcTemplate.queryForList("""
+                INSERT INTO mailbox_leases (company_id, node_id, expires_at)
+                VALUES (?, ?, LOCALTIMESTAMP + ? * INTERVAL '1 second')
+                ON CONFLICT (company_id) DO UPDATE SET
+                    node_id = EXCLUDED.node_id,
+                    expires_at = EXCLUDED.expires_at
+                WHERE mailbox_leases.node_id = EXCLUDED.node_id OR mailbox_leases.expires_at < LOCALTIMESTAMP
+                RETURNING company_id
+                """, Long.class, companyId, nodeId, leaseSeconds);
+        return !acquired.isEmpty();
+    }
+
+    public void release(Long companyId, String nodeId) {
+        jdbcTemplate.update("DELETE FROM mailbox_leases WHERE company_id = ? AND node_id = ?", companyId, nodeId);
+    }
+}
@@ -0,0 +1,23 @@
+package com.mailtasksai.backend.repository;
+
+import com.mailtasksai.backend.model.MailboxSyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+@Repository
+public interface MailboxSyncStateRepository extends JpaRepository<MailboxSyncState, Long> {
+
+    Optional<MailboxSyncState> findByCompanyId(Long companyId);
+
+    @Query("SELECT s.company.id FROM MailboxSyncState s WHERE s.nextPollAt > :now")
+    Set<Long> findCompanyIdsNotDueAt(LocalDateTime now);
+
+    @Transactional
+    void deleteByCompanyId(Long companyId);
+}
@@ -0,0 +1,99 @@
+package com.mailtasksai.backend.repository;
+
+import com.mailtasksai.backend.model.Task;
+import com.mailtasksai.backend.model.UrgenciaEnum;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Caminho de escrita da ingestão: grava a página inteira de tarefas num único INSERT multi-linha.
+// O ON CONFLICT sobre (company_id, email_message_id) torna a gravação idempotente quando dois nós
+// ou dois ciclos sobrepostos processam o mesmo e-mail.
+@Repository
+public class TaskBatchRepository {
+
+    private static final String INSERT_PREFIX = """
+            INSERT INTO tasks (company_id, email_message_id, conversation_id, resumo_tarefa, email_subject, email_body,
+                               urgencia, categoria_sugerida, from_email, to_email, received_at, status,
+                               ai_confidence, classification_source, content_fingerprint, created_at, updated_at)
+            VALUES
+            """;
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SUFFIX = """
+            ON CONFLICT (company_id, email_message_id) DO NOTHING
+            RETURNING id, email_message_id
+            """;
+
+    // Mantém o número de parâmetros bem abaixo do limite do protocolo do Postgres (65535)
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    // Urgências da mais para a menos urgente, na ordem do enum: ARRAY['URGENTE','MEDIANO','ROTINEIRA']
+    private static final String URGENCY_RANK = Arrays.stream(UrgenciaEnum.values())
+            .map(urgencia -> "'" + urgencia.name() + "'")
+            .collect(Collectors.joining(",", "ARRAY[", "]"));
+    static final String RAISE_URGENCY_SQL = "UPDATE tasks SET urgencia = ?, updated_at = LOCALTIMESTAMP WHERE id = ? "
+            + "AND array_position(" + URGENCY_RANK + ", urgencia) > array_position(" + URGENCY_RANK + ", ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Retorna email_message_id -> id das tarefas efetivamente inseridas; as que já existiam são ignoradas
+    public Map<String, Long> insertIgnoringDuplicates(List<Task> tasks) {
+        Map<String, Long> inserted = new HashMap<>();
+        for (int from = 0; from < tasks.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Task> chunk = tasks.subList(from, Math.min(tasks.size(), from + MAX_ROWS_PER_STATEMENT));
+            insertChunk(chunk, inserted);
+        }
+        return inserted;
+    }
+
+    private void insertChunk(List<Task> tasks, Map<String, Long> inserted) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(tasks.size() * 17);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            sql.append(i == 0 ? "" : ",\n").append(ROW_PLACEHOLDERS);
+
+            args.add(task.getCompany().getId());
+            args.add(task.getEmailMessageId());
+            args.add(task.getConversationId());
+            args.add(task.getResumoTarefa());
+            args.add(task.getEmailSubject());
+            args.add(task.getEmailBody());
+            args.add(task.getUrgencia() != null ? task.getUrgencia().name() : null);
+            args.add(task.getCategoriaSugerida());
+            args.add(task.getFromEmail());
+            args.add(task.getToEmail());
+            args.add(task.getReceivedAt() != null ? Timestamp.valueOf(task.getReceivedAt()) : null);
+            args.add(task.getStatus().name());
+            args.add(task.getAiConfidence());
+            args.add(task.getClassificationSource() != null ? task.getClassificationSource().name() : null);
+            args.add(task.getContentFingerprint());
+            args.add(now);
+            args.add(now);
+        }
+        sql.append('\n').append(INSERT_SUFFIX);
+
+        jdbcTemplate.query(sql.toString(),
+                rs -> { inserted.put(rs.getString("email_message_id"), rs.getLong("id")); },
+                args.toArray());
+    }
+
+    // Uma resposta na conversa só sobe a urgência da tarefa, nunca a rebaixa. A comparação fica no banco:
+    // a urgência lida pelo pipeline pode estar velha (outro nó ou o usuário já alteraram a tarefa).
+    // false quando a tarefa já estava com urgência igual ou maior
+    public boolean raiseUrgency(Long taskId, UrgenciaEnum urgencia) {
+        return jdbcTemplate.update(RAISE_URGENCY_SQL, urgencia.name(), taskId, urgencia.name()) > 0;
+    }
+}
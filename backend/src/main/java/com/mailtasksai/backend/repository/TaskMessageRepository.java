@@ -0,0 +1,83 @@
+package com.mailtasksai.backend.repository;
+
+import com.mailtasksai.backend.model.TaskMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Acesso à tabela task_messages. Para a deduplicação, um e-mail anexado a uma tarefa conta como já processado.
+@Repository
+public class TaskMessageRepository {
+
+    private static final RowMapper<TaskMessage> TASK_MESSAGE_MAPPER = (rs, rowNum) -> {
+        TaskMessage message = new TaskMessage();
+        message.setId(rs.getLong("id"));
+        message.setTaskId(rs.getLong("task_id"));
+        message.setCompanyId(rs.getLong("company_id"));
+        message.setEmailMessageId(rs.getString("email_message_id"));
+        message.setFromEmail(rs.getString("from_email"));
+        message.setEmailSubject(rs.getString("email_subject"));
+        Timestamp receivedAt = rs.getTimestamp("received_at");
+        message.setReceivedAt(receivedAt != null ? receivedAt.toLocalDateTime() : null);
+        message.setSimilarity(rs.getObject("similarity", Double.class));
+        message.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return message;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // false quando o e-mail já estava anexado (outro ciclo ou nó chegou antes)
+    public boolean attach(TaskMessage message) {
+        return jdbcTemplate.update("""
+                INSERT INTO task_messages (task_id, company_id, email_message_id, from_email, email_subject,
+                                           received_at, similarity, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, LOCALTIMESTAMP)
+                ON CONFLICT (company_id, email_message_id) DO NOTHING
+                """,
+                message.getTaskId(),
+                message.getCompanyId(),
+                message.getEmailMessageId(),
+                message.getFromEmail(),
+                message.getEmailSubject(),
+                message.getReceivedAt() != null ? Timestamp.valueOf(message.getReceivedAt()) : null,
+                message.getSimilarity()) > 0;
+    }
+
+    public Set<String> findExistingMessageIds(Long companyId, Collection<String> messageIds) {
+        if (messageIds.isEmpty()) return Set.of();
+        String placeholders = String.join(",", Collections.nCopies(messageIds.size(), "?"));
+        Object[] args = new Object[messageIds.size() + 1];
+        args[0] = companyId;
+        int i = 1;
+        for (String messageId : messageIds) args[i++] = messageId;
+
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT email_message_id FROM task_messages WHERE company_id = ? AND email_message_id IN (" + placeholders + ")",
+                String.class, args));
+    }
+
+    // E-mails anexados à tarefa, na ordem em que chegaram
+    public List<TaskMessage> findByTask(Long companyId, Long taskId) {
+        return jdbcTemplate.query("""
+                SELECT id, task_id, company_id, email_message_id, from_email, email_subject,
+                       received_at, similarity, created_at
+                FROM task_messages
+                WHERE company_id = ? AND task_id = ?
+                ORDER BY received_at, id
+                """, TASK_MESSAGE_MAPPER, companyId, taskId);
+    }
+
+    public List<String> findMessageIdsByCompanyId(Long companyId) {
+        return jdbcTemplate.queryForList(
+                "SELECT email_message_id FROM task_messages WHERE company_id = ?", String.class, companyId);
+    }
+}
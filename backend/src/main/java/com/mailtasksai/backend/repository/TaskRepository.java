@@ -1,22 +1,33 @@
 package com.mailtasksai.backend.repository;
 
+import com.mailtasksai.backend.dto.TaskConversation;
+import com.mailtasksai.backend.dto.TaskFingerprint;
+import com.mailtasksai.backend.dto.TaskTrainingExample;
 import com.mailtasksai.backend.model.Task;
 import com.mailtasksai.backend.model.TaskStatus;
 import com.mailtasksai.backend.model.UrgenciaEnum;
 import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificationExecutor<Task> {
 
-    boolean existsByEmailMessageId(String emailMessageId);
+    @Query("SELECT t.emailMessageId FROM Task t WHERE t.company.id = :companyId AND t.emailMessageId IN :messageIds")
+    Set<String> findExistingMessageIds(Long companyId, Collection<String> messageIds);
+
+    @Query("SELECT t.emailMessageId FROM Task t WHERE t.company.id = :companyId")
+    List<String> findEmailMessageIdsByCompanyId(Long companyId);
 
     List<Task> findByCompanyIdOrderByReceivedAtDesc(Long companyId);
 
@@ -27,4 +38,24 @@ public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificat
     long countByCompanyIdAndCategoriaSugerida(Long companyId, String categoriaSugerida);
 
     Page<Task> findByCompanyId(Long companyId, Pageable pageable);
-}
\ No newline at end of file
+
+    boolean existsByIdAndCompanyId(Long id, Long companyId);
+
+    // Tarefas classificadas pela IA (ou editadas depois), em ordem de id, para o treino incremental
+    // do classificador local. As classificadas pelo próprio classificador local ficam de fora.
+    @Query("SELECT new com.mailtasksai.backend.dto.TaskTrainingExample(t.id, t.company.id, t.emailSubject, t.emailBody, t.fromEmail, t.urgencia, t.categoriaSugerida) " +
+            "FROM Task t WHERE t.id > :afterId " +
+            "AND (t.classificationSource IS NULL OR t.classificationSource <> com.mailtasksai.backend.model.ClassificationSource.LOCAL) " +
+            "ORDER BY t.id")
+    List<TaskTrainingExample> findTrainingExamplesAfter(Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.mailtasksai.backend.dto.TaskFingerprint(t.id, t.emailMessageId, t.emailSubject, t.contentFingerprint, t.receivedAt) " +
+            "FROM Task t WHERE t.company.id = :companyId AND t.receivedAt >= :since AND t.contentFingerprint IS NOT NULL")
+    List<TaskFingerprint> findFingerprintsSince(Long companyId, LocalDateTime since);
+
+    // Tarefas ainda abertas das conversas informadas, da mais recente para a mais antiga
+    @Query("SELECT new com.mailtasksai.backend.dto.TaskConversation(t.id, t.conversationId, t.urgencia) " +
+            "FROM Task t WHERE t.company.id = :companyId AND t.conversationId IN :conversationIds " +
+            "AND t.status IN :statuses ORDER BY t.receivedAt DESC")
+    List<TaskConversation> findByConversationIds(Long companyId, Collection<String> conversationIds, Collection<TaskStatus> statuses);
+}
@@ -3,6 +3,7 @@ package com.mailtasksai.backend.repository;
 import com.mailtasksai.backend.model.Task;
 import com.mailtasksai.backend.model.TaskStatus;
 import com.mailtasksai.backend.model.UrgenciaEnum;
+import jakarta.persistence.criteria.Expression;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDate;
@@ -22,6 +23,24 @@ public class TaskSpecifications {
         );
     }
 
+    // Busca pela coluna search_vector (índice GIN), gerada pelo Postgres a partir de assunto, resumo,
+    // remetente e corpo (migração V2__task_full_text_search) e fora do mapeamento de Task: as funções
+    // recebem o id só para achar a tabela. Sem ordenação explícita na página, os resultados vêm por
+    // relevância; a consulta de contagem da paginação não recebe o ORDER BY.
+    public static Specification<Task> withFullTextSearch(String text) {
+        if (text == null || text.isBlank()) return null;
+        return (root, query, cb) -> {
+            Expression<Long> taskId = root.get("id");
+            Expression<String> terms = cb.literal(text.strip());
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                query.orderBy(
+                        cb.desc(cb.function("fts_rank", Double.class, taskId, terms)),
+                        cb.desc(root.get("receivedAt")));
+            }
+            return cb.isTrue(cb.function("fts_match", Boolean.class, taskId, terms));
+        };
+    }
+
     public static Specification<Task> withUrgencia(UrgenciaEnum urgencia) {
         if (urgencia == null) return null;
         return (root, query, cb) -> cb.equal(root.get("urgencia"), urgencia);
@@ -1,75 +1,278 @@
 package com.mailtasksai.backend.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mailtasksai.backend.dto.*;
+import com.mailtasksai.backend.util.HtmlToTextConverter;
+import com.mailtasksai.backend.util.PromptCompactor;
+import com.mailtasksai.backend.util.TokenEstimator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
 @Service
 @Slf4j
 public class AIProcessingService {
 
-    @Value("${openai.api-key}")
-    private String openAIApiKey;
+    private static final int ESTIMATED_OUTPUT_TOKENS_PER_EMAIL = 250;
+
+    @Value("${ai.prompt.body-token-budget:400}")
+    private int bodyTokenBudget;
+
+    @Value("${ai.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    @Value("${ai.batch.max-emails:8}")
+    private int batchMaxEmails;
+
+    @Value("${ai.batch.max-prompt-chars:16000}")
+    private int batchMaxPromptChars;
 
-    private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
-    private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public AITaskResult processEmail(EmailMessage email) throws Exception {
-        log.info("Processando e-mail com IA: {}", email.getSubject());
+    @Autowired
+    private ClassificationCache classificationCache;
+
+    @Autowired
+    private AIProviderRouter providerRouter;
+
+    @Autowired
+    private ExecutorService aiClassificationExecutor;
+
+    @Autowired
+    private AIUsageLedger usageLedger;
 
-        String userPrompt = buildPrompt(email);
+    public AITaskResult processEmail(Long companyId, EmailMessage email) throws Exception {
+        return processEmail(companyId, email, false);
+    }
+
+    // cacheChecked: o e-mail já foi procurado no cache por processEmails e não estava lá;
+    // não consulta de novo, para o miss não ser contado duas vezes
+    public AITaskResult processEmail(Long companyId, EmailMessage email, boolean cacheChecked) throws Exception {
+        String plainBody = plainBody(email);
+        String senderAddress = email.getFrom() != null ? email.getFrom().getAddress() : null;
+        String userPrompt = buildPrompt(email, plainBody);
         String systemPrompt = getSystemPrompt();
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(openAIApiKey);
-
-        OpenAIChatRequest requestBody = new OpenAIChatRequest(
-                "gpt-4o-mini",
-                List.of(
-                        new OpenAIMessage("system", systemPrompt),
-                        new OpenAIMessage("user", userPrompt)
-                ),
-                0.3,
-                Map.of("type", "json_object")
-        );
+        // E-mails com o mesmo conteúdo (alertas, cópias do mesmo pedido) reaproveitam a classificação
+        String cacheKey = classificationCache.keyFor(email.getSubject(), senderAddress, plainBody);
+        if (!cacheChecked) {
+            int estimatedPromptTokens = TokenEstimator.estimate(systemPrompt) + TokenEstimator.estimate(userPrompt);
+            AITaskResult cached = classificationCache.get(cacheKey, estimatedPromptTokens).orElse(null);
+            if (cached != null) {
+                log.debug("Classificação reaproveitada do cache: {}", email.getSubject());
+                return cached;
+            }
+        }
 
-        HttpEntity<OpenAIChatRequest> entity = new HttpEntity<>(requestBody, headers);
+        return callOpenAI(companyId, email, systemPrompt, userPrompt, cacheKey);
+    }
 
-        try {
-            ResponseEntity<OpenAIResponse> response = restTemplate.postForEntity(
-                    OPENAI_API_URL,
-                    entity,
-                    OpenAIResponse.class
-            );
+    // Classifica vários e-mails com uma única chamada, repetindo o system prompt uma vez só.
+    // Devolve apenas os resultados que vieram do cache ou foram lidos com sucesso da resposta em lote.
+    // Todos os e-mails passam pelo cache aqui, mesmo com o lote desligado: os que ficarem de fora
+    // devem ser classificados com processEmail(companyId, email, true), a não ser que o lote tenha
+    // batido no limite da OpenAI (rateLimited): aí chamadas individuais só multiplicariam os 429.
+    // Todos os e-mails devem ser da mesma empresa, para o consumo de tokens ser atribuído a ela.
+    public BatchClassification processEmails(Long companyId, List<EmailMessage> emails) {
+        Map<String, AITaskResult> results = new HashMap<>();
 
-            String jsonResponseContent = response.getBody()
-                    .getChoices()
-                    .get(0)
-                    .getMessage()
-                    .getContent();
+        List<BatchEntry> pending = new ArrayList<>();
+        for (EmailMessage email : emails) {
+            String plainBody = plainBody(email);
+            String senderAddress = email.getFrom() != null ? email.getFrom().getAddress() : null;
+            String cacheKey = classificationCache.keyFor(email.getSubject(), senderAddress, plainBody);
+            String userPrompt = buildPrompt(email, plainBody);
 
-            log.debug("Resposta JSON da IA: {}", jsonResponseContent);
+            AITaskResult cached = classificationCache
+                    .get(cacheKey, TokenEstimator.estimate(getSystemPrompt()) + TokenEstimator.estimate(userPrompt))
+                    .orElse(null);
+            if (cached != null) {
+                results.put(email.getId(), cached);
+            } else {
+                pending.add(new BatchEntry(email, plainBody, cacheKey));
+            }
+        }
+        if (!batchEnabled || pending.size() < 2) {
+            return new BatchClassification(results, null);
+        }
+
+        // Os lotes são enviados em paralelo; o rate limiter decide quantos ficam em voo
+        Map<List<BatchEntry>, CompletableFuture<Map<String, AITaskResult>>> calls = new LinkedHashMap<>();
+        for (List<BatchEntry> chunk : chunk(pending)) {
+            if (chunk.size() < 2) continue; // sozinho vai pelo caminho individual
+            calls.put(chunk, CompletableFuture.supplyAsync(() -> {
+                try {
+                    return callOpenAIBatch(companyId, chunk);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, aiClassificationExecutor));
+        }
 
-            return objectMapper.readValue(jsonResponseContent, AITaskResult.class);
+        AIRateLimitException rateLimited = null;
+        for (Map.Entry<List<BatchEntry>, CompletableFuture<Map<String, AITaskResult>>> call : calls.entrySet()) {
+            List<BatchEntry> chunk = call.getKey();
+            try {
+                Map<String, AITaskResult> chunkResults = call.getValue().join();
+                for (BatchEntry entry : chunk) {
+                    AITaskResult result = chunkResults.get(entry.email().getId());
+                    if (result != null) {
+                        results.put(entry.email().getId(), result);
+                    }
+                }
+                if (chunkResults.size() < chunk.size()) {
+                    log.warn("Resposta em lote incompleta: {} de {} e-mails. Os demais serão classificados individualmente",
+                            chunkResults.size(), chunk.size());
+                }
+            } catch (Exception e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof AIRateLimitException rateLimit) {
+                    log.warn("Lote de {} e-mails recusado pelo limite da IA: {}", chunk.size(), rateLimit.getMessage());
+                    rateLimited = rateLimit;
+                } else {
+                    log.warn("Falha na classificação em lote de {} e-mails, usando chamadas individuais: {}",
+                            chunk.size(), cause.getMessage());
+                }
+            }
+        }
 
+        return new BatchClassification(results, rateLimited);
+    }
+
+    // rateLimited: algum lote recebeu 429 (ou não havia provedor disponível); os e-mails sem resultado
+    // devem voltar para a fila respeitando o Retry-After em vez de irem para a classificação individual
+    public record BatchClassification(Map<String, AITaskResult> results, AIRateLimitException rateLimited) {}
+
+    private record BatchEntry(EmailMessage email, String plainBody, String cacheKey) {}
+
+    // Limita tanto a quantidade de e-mails quanto o tamanho total do prompt de cada lote
+    private List<List<BatchEntry>> chunk(List<BatchEntry> entries) {
+        List<List<BatchEntry>> chunks = new ArrayList<>();
+        List<BatchEntry> current = new ArrayList<>();
+        int currentChars = 0;
+
+        for (BatchEntry entry : entries) {
+            int chars = entry.plainBody().length() + 200;
+            if (!current.isEmpty() && (current.size() >= batchMaxEmails || currentChars + chars > batchMaxPromptChars)) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                currentChars = 0;
+            }
+            current.add(entry);
+            currentChars += chars;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    // Os e-mails são identificados por posição ("1", "2"...) em vez do ID do Graph, que tem mais de
+    // 100 caracteres: economiza tokens e evita o modelo devolver um ID truncado
+    private Map<String, AITaskResult> callOpenAIBatch(Long companyId, List<BatchEntry> entries) throws Exception {
+        log.info("Processando lote de {} e-mails com IA", entries.size());
+
+        StringBuilder userPrompt = new StringBuilder("Analise os e-mails abaixo e extraia a tarefa principal de cada um.\n");
+        for (int i = 0; i < entries.size(); i++) {
+            BatchEntry entry = entries.get(i);
+            userPrompt.append("\n### message_id: ").append(i + 1).append('\n')
+                    .append(buildPrompt(entry.email(), entry.plainBody()));
+        }
+
+        AIProvider.AICompletion completion =
+                chatCompletion(companyId, getBatchSystemPrompt(), userPrompt.toString(), entries.size());
+        JsonNode items = objectMapper.readTree(completion.content()).path("resultados");
+        if (!items.isArray()) {
+            throw new RuntimeException("Resposta em lote sem o array \"resultados\"");
+        }
+
+        Map<String, AITaskResult> results = new HashMap<>();
+        for (JsonNode item : items) {
+            int index = item.path("message_id").asInt(0) - 1;
+            if (index < 0 || index >= entries.size()) continue;
+            try {
+                AITaskResult result = objectMapper.treeToValue(item, AITaskResult.class);
+                if (result.getResumoTarefa() != null) {
+                    results.put(entries.get(index).email().getId(), result);
+                    cache(entries.get(index).cacheKey(), result, completion);
+                }
+            } catch (Exception e) {
+                log.debug("Item inválido na resposta em lote: {}", e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    private AITaskResult callOpenAI(Long companyId, EmailMessage email, String systemPrompt, String userPrompt,
+                                    String cacheKey) {
+        log.info("Processando e-mail com IA: {}", email.getSubject());
+
+        try {
+            AIProvider.AICompletion completion = chatCompletion(companyId, systemPrompt, userPrompt, 1);
+            AITaskResult result = objectMapper.readValue(completion.content(), AITaskResult.class);
+            cache(cacheKey, result, completion);
+            return result;
+        } catch (AIRateLimitException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Erro ao chamar API da OpenAI: {}", e.getMessage());
             throw new RuntimeException("Falha no processamento da IA", e);
         }
     }
 
+    // A escolha do provedor, failover e circuit breaker ficam no AIProviderRouter
+    private AIProvider.AICompletion chatCompletion(Long companyId, String systemPrompt, String userPrompt, int emailCount) {
+        long estimatedTokens = TokenEstimator.estimate(systemPrompt) + TokenEstimator.estimate(userPrompt)
+                + (long) ESTIMATED_OUTPUT_TOKENS_PER_EMAIL * emailCount;
+        AIProvider.AICompletion completion = providerRouter.complete(systemPrompt, userPrompt, estimatedTokens);
+        usageLedger.record(companyId, completion);
+
+        log.debug("Resposta JSON da IA ({}): {}", completion.provider(), completion.content());
+        return completion;
+    }
+
+    // Respostas de reserva (modelo mais barato ou stub) valem para esta ingestão, mas não podem ficar
+    // 30 dias no cache respondendo no lugar do provedor principal
+    private void cache(String cacheKey, AITaskResult result, AIProvider.AICompletion completion) {
+        if (providerRouter.isPrimary(completion.provider())) {
+            classificationCache.put(cacheKey, result);
+        } else {
+            log.debug("Resposta do provedor reserva {} não vai para o cache", completion.provider());
+        }
+    }
+
+    // O response_format json_object exige um objeto na raiz, então o array vai dentro de "resultados"
+    private String getBatchSystemPrompt() {
+        return getSystemPrompt() + """
+
+            MODO LOTE: você receberá VÁRIOS e-mails, cada um precedido de "### message_id: N".
+            Analise cada e-mail separadamente e retorne UM ÚNICO JSON no formato:
+            {
+              "resultados": [
+                {
+                  "message_id": "N",
+                  "resumo_tarefa": "...",
+                  "urgencia": "...",
+                  "categoria_sugerida": "...",
+                  "confidence": 0.95
+                }
+              ]
+            }
+            Inclua exatamente um item em "resultados" para cada message_id recebido.
+            """;
+    }
+
     private String getSystemPrompt() {
         return """
             Você é um assistente especializado em análise de e-mails corporativos.
@@ -100,14 +303,17 @@ public class AIProcessingService {
             """;
     }
 
-    private String buildPrompt(EmailMessage email) {
-        String emailBody = email.getBody() != null ? email.getBody().getContent() : "";
-        String plainBody = emailBody.replaceAll("<[^>]*>", " ").replaceAll("\\s+", " ").trim();
-
-        if (plainBody.length() > 1500) {
-            plainBody = plainBody.substring(0, 1500) + "...";
-        }
+    // Corpo já compactado (sem histórico citado, assinatura e rodapés) dentro do orçamento de tokens
+    private String plainBody(EmailMessage email) {
+        EmailMessageBody body = email.getBody();
+        if (body == null) return "";
+        String text = body.isHtml()
+                ? HtmlToTextConverter.toText(body.getContent())
+                : HtmlToTextConverter.normalizeText(body.getContent());
+        return PromptCompactor.compact(text, bodyTokenBudget);
+    }
 
+    private String buildPrompt(EmailMessage email, String plainBody) {
         return String.format("""
             Analise o seguinte e-mail e extraia a tarefa principal:
             
@@ -0,0 +1,16 @@
+package com.mailtasksai.backend.service;
+
+// Provedor de chat completion usado na classificação. Recebe os prompts já montados e devolve o
+// conteúdo JSON da resposta; a montagem dos prompts e a leitura do JSON ficam no AIProcessingService.
+public interface AIProvider {
+
+    String getName();
+
+    // estimatedTokens: prompt + saída esperada, para provedores com orçamento de tokens por minuto
+    AICompletion complete(String systemPrompt, String userPrompt, long estimatedTokens);
+
+    // Tokens vêm do bloco "usage" da resposta quando o provedor informa; costUsd pelo preço configurado.
+    // latencyMillis: só a chamada ao provedor, sem a espera no rate limiter (é o que o circuit breaker avalia)
+    record AICompletion(String provider, String model, String content,
+                        long promptTokens, long completionTokens, double costUsd, long latencyMillis) {}
+}
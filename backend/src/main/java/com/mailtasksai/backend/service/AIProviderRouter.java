@@ -0,0 +1,186 @@
+package com.mailtasksai.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mailtasksai.backend.service.AIProvider.AICompletion;
+import com.mailtasksai.backend.util.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Encadeia os provedores de IA configurados em ai.provider.chain (ex.: "openai,fallback").
+// Cada provedor tem um circuit breaker e um tempo máximo por chamada: um primário lento ou fora do ar
+// abre o circuito e as chamadas seguintes vão direto para o próximo da cadeia. Tempo limite e lentidão
+// medem só a chamada HTTP; espera no rate limiter e 429 não são falha do provedor.
+@Service
+@Slf4j
+public class AIProviderRouter {
+
+    @Autowired
+    @Qualifier("openAiRestTemplate")
+    private RestTemplate openAiRestTemplate;
+
+    @Autowired private OpenAIRateLimiter rateLimiter;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private ExecutorService aiClassificationExecutor;
+    @Autowired private MeterRegistry meterRegistry;
+
+    @Value("${ai.provider.chain:openai}")
+    private List<String> chain;
+
+    @Value("${ai.provider.call-timeout-ms:30000}")
+    private long callTimeoutMs;
+
+    @Value("${ai.providers.openai.url:https://api.openai.com/v1/chat/completions}")
+    private String openAiUrl;
+
+    @Value("${ai.providers.openai.model:gpt-4o-mini}")
+    private String openAiModel;
+
+    @Value("${ai.providers.openai.api-key:${openai.api-key}}")
+    private String openAiApiKey;
+
+    // Preços em USD por milhão de tokens, usados no custo por empresa (padrão: gpt-4o-mini)
+    @Value("${ai.providers.openai.prompt-price-per-million:0.15}")
+    private double openAiPromptPrice;
+
+    @Value("${ai.providers.openai.completion-price-per-million:0.60}")
+    private double openAiCompletionPrice;
+
+    // Segundo endpoint compatível com a OpenAI (modelo mais barato, self-hosted...); opcional
+    @Value("${ai.providers.fallback.url:}")
+    private String fallbackUrl;
+
+    @Value("${ai.providers.fallback.model:}")
+    private String fallbackModel;
+
+    @Value("${ai.providers.fallback.api-key:}")
+    private String fallbackApiKey;
+
+    @Value("${ai.providers.fallback.prompt-price-per-million:0}")
+    private double fallbackPromptPrice;
+
+    @Value("${ai.providers.fallback.completion-price-per-million:0}")
+    private double fallbackCompletionPrice;
+
+    @Value("${ai.providers.stub.latency-ms:50}")
+    private long stubLatencyMs;
+
+    @Value("${ai.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${ai.circuit-breaker.slow-call-ms:20000}")
+    private long slowCallMs;
+
+    @Value("${ai.circuit-breaker.open-seconds:30}")
+    private long openSeconds;
+
+    private final Map<String, AIProvider> providers = new LinkedHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new LinkedHashMap<>();
+    private List<AIProvider> activeChain;
+
+    @PostConstruct
+    void init() {
+        register(new OpenAICompatibleProvider("openai", openAiUrl, openAiModel, openAiApiKey, openAiRestTemplate, rateLimiter,
+                openAiPromptPrice, openAiCompletionPrice, aiClassificationExecutor, callTimeoutMs));
+        if (!fallbackUrl.isBlank()) {
+            register(new OpenAICompatibleProvider("fallback", fallbackUrl, fallbackModel, fallbackApiKey, openAiRestTemplate, null,
+                    fallbackPromptPrice, fallbackCompletionPrice, aiClassificationExecutor, callTimeoutMs));
+        }
+        register(new StubAIProvider(objectMapper, stubLatencyMs));
+
+        List<AIProvider> configured = new ArrayList<>();
+        for (String name : chain) {
+            AIProvider provider = providers.get(name.trim());
+            if (provider == null) {
+                throw new IllegalStateException("Provedor de IA desconhecido em ai.provider.chain: " + name);
+            }
+            configured.add(provider);
+        }
+        activeChain = List.copyOf(configured);
+        log.info("Cadeia de provedores de IA: {}", activeChain.stream().map(AIProvider::getName).toList());
+    }
+
+    public AICompletion complete(String systemPrompt, String userPrompt, long estimatedTokens) {
+        RuntimeException lastFailure = null;
+
+        for (AIProvider provider : activeChain) {
+            CircuitBreaker breaker = breakers.get(provider.getName());
+            if (!breaker.tryAcquire()) {
+                continue;
+            }
+
+            long started = System.nanoTime();
+            try {
+                AICompletion completion = provider.complete(systemPrompt, userPrompt, estimatedTokens);
+                breaker.onSuccess(completion.latencyMillis());
+                callTimer(provider, "success").record(completion.latencyMillis(), TimeUnit.MILLISECONDS);
+                return completion;
+            } catch (RuntimeException e) {
+                if (e instanceof AIRateLimitException) {
+                    // Cota esgotada não é provedor doente: não abre o circuito
+                    breaker.release();
+                } else {
+                    breaker.onFailure();
+                }
+                callTimer(provider, outcome(e)).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                lastFailure = e;
+                log.warn("Provedor de IA {} falhou ({}), tentando o próximo da cadeia", provider.getName(), e.getMessage());
+            }
+        }
+
+        if (lastFailure != null) {
+            throw lastFailure;
+        }
+        // Todos os circuitos abertos: reagendar para depois que eles voltarem a aceitar chamadas
+        throw new AIRateLimitException("Nenhum provedor de IA disponível (circuitos abertos)", openSeconds);
+    }
+
+    // Resposta do primeiro provedor da cadeia; as dos reservas (modelo mais fraco, stub) não vão para o cache
+    public boolean isPrimary(String providerName) {
+        return activeChain.get(0).getName().equals(providerName);
+    }
+
+    public Map<String, CircuitBreaker.State> getCircuitStates() {
+        Map<String, CircuitBreaker.State> states = new LinkedHashMap<>();
+        for (AIProvider provider : activeChain) {
+            states.put(provider.getName(), breakers.get(provider.getName()).getState());
+        }
+        return states;
+    }
+
+    // Histograma de latência por provedor e resultado; p50/p95/p99 aparecem em /actuator/metrics/ai.provider.call.percentile
+    private Timer callTimer(AIProvider provider, String outcome) {
+        return Timer.builder("ai.provider.call")
+                .description("Latência das chamadas aos provedores de IA")
+                .tag("provider", provider.getName())
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String outcome(RuntimeException e) {
+        if (e instanceof AIRateLimitException) return "rate_limited";
+        if (e.getCause() instanceof TimeoutException) return "timeout";
+        return "error";
+    }
+
+    private void register(AIProvider provider) {
+        providers.put(provider.getName(), provider);
+        breakers.put(provider.getName(), new CircuitBreaker(failureThreshold, slowCallMs, openSeconds * 1000));
+    }
+}
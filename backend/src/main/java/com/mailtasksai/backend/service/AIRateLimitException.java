@@ -0,0 +1,23 @@
+package com.mailtasksai.backend.service;
+
+// A OpenAI respondeu 429 e as retentativas imediatas se esgotaram (ou nenhum provedor está aceitando
+// chamadas). retryAfterSeconds vem do Retry-After (ou de um padrão) e é usado para reagendar o
+// e-mail na fila durável.
+public class AIRateLimitException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AIRateLimitException(long retryAfterSeconds, Throwable cause) {
+        super("Limite de requisições da OpenAI atingido. Tentar novamente em " + retryAfterSeconds + "s", cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public AIRateLimitException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,104 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.AICompanyUsage;
+import com.mailtasksai.backend.repository.AITokenUsageRepository;
+import com.mailtasksai.backend.repository.AITokenUsageRepository.UsageDelta;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Contabiliza tokens e custo de cada chamada de IA por empresa. O consumo é somado em memória e
+// gravado no banco em lote a cada ciclo, para não adicionar uma escrita por chamada à OpenAI.
+// Os contadores do Micrometer ficam só por provedor/modelo: empresa como tag explodiria a cardinalidade.
+@Service
+@Slf4j
+public class AIUsageLedger {
+
+    private record UsageKey(Long companyId, LocalDate date, String provider, String model) {}
+
+    private record Usage(long requests, long promptTokens, long completionTokens, double costUsd) {
+        Usage plus(Usage other) {
+            return new Usage(requests + other.requests, promptTokens + other.promptTokens,
+                    completionTokens + other.completionTokens, costUsd + other.costUsd);
+        }
+    }
+
+    private final Map<UsageKey, Usage> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    private AITokenUsageRepository usageRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public void record(Long companyId, AIProvider.AICompletion completion) {
+        tokenCounter(completion, "prompt").increment(completion.promptTokens());
+        tokenCounter(completion, "completion").increment(completion.completionTokens());
+        Counter.builder("ai.cost")
+                .description("Custo estimado das chamadas de IA")
+                .baseUnit("usd")
+                .tag("provider", completion.provider())
+                .tag("model", completion.model())
+                .register(meterRegistry)
+                .increment(completion.costUsd());
+
+        if (companyId == null) return;
+        UsageKey key = new UsageKey(companyId, LocalDate.now(), completion.provider(), completion.model());
+        pending.merge(key, new Usage(1, completion.promptTokens(), completion.completionTokens(), completion.costUsd()), Usage::plus);
+    }
+
+    // remove() é atômico com o merge(): o que chegar durante a gravação fica para o próximo ciclo
+    @Scheduled(fixedDelayString = "${ai.usage.flush-interval-ms:30000}", initialDelayString = "${ai.usage.flush-interval-ms:30000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        Map<UsageKey, Usage> drained = new HashMap<>();
+        for (UsageKey key : new ArrayList<>(pending.keySet())) {
+            Usage usage = pending.remove(key);
+            if (usage != null) drained.put(key, usage);
+        }
+
+        List<UsageDelta> deltas = drained.entrySet().stream()
+                .map(e -> new UsageDelta(e.getKey().companyId(), e.getKey().date(), e.getKey().provider(), e.getKey().model(),
+                        e.getValue().requests(), e.getValue().promptTokens(), e.getValue().completionTokens(), e.getValue().costUsd()))
+                .toList();
+        try {
+            usageRepository.addAll(deltas);
+            log.debug("Consumo de IA gravado: {} linhas", deltas.size());
+        } catch (Exception e) {
+            // Devolve ao acumulador para não perder o consumo; tenta de novo no próximo ciclo
+            drained.forEach((key, usage) -> pending.merge(key, usage, Usage::plus));
+            log.warn("Não foi possível gravar o consumo de IA ({} linhas): {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    public List<AICompanyUsage> getTopCompanies(int days, int limit) {
+        return usageRepository.findTopCompanies(days, limit);
+    }
+
+    private Counter tokenCounter(AIProvider.AICompletion completion, String type) {
+        return Counter.builder("ai.tokens")
+                .description("Tokens consumidos nas chamadas de IA")
+                .baseUnit("tokens")
+                .tag("provider", completion.provider())
+                .tag("model", completion.model())
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+}
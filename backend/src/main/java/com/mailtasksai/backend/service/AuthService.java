@@ -5,10 +5,12 @@ import com.mailtasksai.backend.model.CompanyTokens;
 import com.mailtasksai.backend.model.User;
 import com.mailtasksai.backend.repository.CompanyRepository;
 import com.mailtasksai.backend.repository.CompanyTokensRepository;
+import com.mailtasksai.backend.repository.GraphSubscriptionRepository;
 import com.mailtasksai.backend.repository.UserRepository;
 import com.mailtasksai.backend.util.EncryptionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -45,6 +47,14 @@ public class AuthService {
     @Autowired
     private CompanyRepository companyRepository;
 
+    @Autowired
+    @Qualifier("identityRestTemplate")
+    private RestTemplate identityRestTemplate;
+
+    @Autowired
+    @Qualifier("graphRestTemplate")
+    private RestTemplate graphRestTemplate;
+
     @Autowired
     private CompanyTokensRepository companyTokensRepository;
 
@@ -57,6 +67,12 @@ public class AuthService {
     @Autowired
     private GraphApiClient graphApiClient; // Injeção nova para renovação de tokens
 
+    @Autowired
+    private MailboxSyncService mailboxSyncService;
+
+    @Autowired
+    private GraphSubscriptionRepository graphSubscriptionRepository;
+
     public String getAuthorizationUrl() {
         String state = UUID.randomUUID().toString();
         String scope = "openid profile offline_access https://graph.microsoft.com/Mail.Read https://graph.microsoft.com/Mail.Send https://graph.microsoft.com/User.Read";
@@ -72,8 +88,6 @@ public class AuthService {
     }
 
     public CompanyTokens exchangeCodeForTokens(String code, String state) throws Exception {
-        RestTemplate restTemplate = new RestTemplate();
-
         MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
         params.add("client_id", clientId);
         params.add("client_secret", clientSecret);
@@ -86,7 +100,7 @@ public class AuthService {
 
         HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(params, headers);
 
-        ResponseEntity<Map> response = restTemplate.postForEntity(
+        ResponseEntity<Map> response = identityRestTemplate.postForEntity(
                 String.format(TOKEN_ENDPOINT, tenantId),
                 request,
                 Map.class
@@ -134,11 +148,10 @@ public class AuthService {
     }
 
     private Map<String, String> getUserInfo(String accessToken) {
-        RestTemplate restTemplate = new RestTemplate();
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(accessToken);
         HttpEntity<String> entity = new HttpEntity<>(headers);
-        return (Map<String, String>) restTemplate.exchange(GRAPH_USER_ENDPOINT, HttpMethod.GET, entity, Map.class).getBody();
+        return (Map<String, String>) graphRestTemplate.exchange(GRAPH_USER_ENDPOINT, HttpMethod.GET, entity, Map.class).getBody();
     }
 
     private User updateLocalUser(String name, String email) {
@@ -159,10 +172,15 @@ public class AuthService {
         tokens.setRefreshToken(encryptionService.encrypt(refreshToken));
         tokens.setExpiresAt(LocalDateTime.now().plusSeconds(expiresInSeconds));
 
+        // Nova conexão pode ser outra caixa de correio: o cursor de sincronização anterior não vale mais
+        mailboxSyncService.reset(company.getId());
+
         return companyTokensRepository.save(tokens);
     }
 
     public void revokeTokens(Long companyId) {
         companyTokensRepository.deleteByCompanyId(companyId);
+        graphSubscriptionRepository.deleteByCompanyId(companyId);
+        mailboxSyncService.reset(companyId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package com.mailtasksai.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mailtasksai.backend.dto.AITaskResult;
+import com.mailtasksai.backend.dto.ClassificationCacheStats;
+import com.mailtasksai.backend.repository.ClassificationCacheRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache dos resultados da IA por conteúdo do e-mail. Alertas de sistema e cópias do mesmo pedido
+// enviadas a várias pessoas geram o mesmo hash e reaproveitam a classificação sem chamar a OpenAI.
+// Primeiro nível em memória (LRU com TTL), segundo nível na tabela ai_classification_cache.
+@Service
+@Slf4j
+public class ClassificationCache {
+
+    @Autowired private ClassificationCacheRepository cacheRepository;
+    @Autowired private ObjectMapper objectMapper;
+
+    @Value("${ai.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.cache.memory-max-entries:10000}")
+    private int memoryMaxEntries;
+
+    @Value("${ai.cache.memory-ttl-minutes:60}")
+    private long memoryTtlMinutes;
+
+    @Value("${ai.cache.database-ttl-days:30}")
+    private long databaseTtlDays;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong tokensSaved = new AtomicLong();
+
+    private final LinkedHashMap<String, CachedResult> memory = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            return size() > memoryMaxEntries;
+        }
+    };
+
+    private record CachedResult(AITaskResult result, long expiresAtMillis) {}
+
+    // Assunto e corpo em minúsculas e com espaços colapsados, remetente reduzido ao domínio
+    public String keyFor(String subject, String senderAddress, String plainBody) {
+        String domain = senderAddress != null && senderAddress.contains("@")
+                ? senderAddress.substring(senderAddress.lastIndexOf('@') + 1)
+                : "";
+        String content = normalize(subject) + '\n' + normalize(domain) + '\n' + normalize(plainBody);
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    // promptTokens: estimativa do tamanho do prompt, usada só para contabilizar a economia
+    public Optional<AITaskResult> get(String key, int promptTokens) {
+        if (!enabled) return Optional.empty();
+
+        AITaskResult cached = fromMemory(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            tokensSaved.addAndGet(promptTokens);
+            return Optional.of(cached);
+        }
+
+        try {
+            Optional<String> stored = cacheRepository.findFresh(key, databaseTtlDays);
+            if (stored.isPresent()) {
+                AITaskResult result = objectMapper.readValue(stored.get(), AITaskResult.class);
+                remember(key, result);
+                databaseHits.incrementAndGet();
+                tokensSaved.addAndGet(promptTokens);
+                return Optional.of(result);
+            }
+        } catch (Exception e) {
+            // Cache nunca impede a classificação: na dúvida, chama a IA
+            log.warn("Falha ao consultar cache de classificação: {}", e.getMessage());
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    public void put(String key, AITaskResult result) {
+        if (!enabled || result == null || result.getResumoTarefa() == null) return;
+
+        remember(key, result);
+        try {
+            cacheRepository.save(key, objectMapper.writeValueAsString(result));
+        } catch (Exception e) {
+            log.warn("Falha ao gravar cache de classificação: {}", e.getMessage());
+        }
+    }
+
+    public ClassificationCacheStats getStats() {
+        long memory = memoryHits.get();
+        long database = databaseHits.get();
+        long miss = misses.get();
+        long lookups = memory + database + miss;
+        int entries;
+        synchronized (this.memory) {
+            entries = this.memory.size();
+        }
+        return new ClassificationCacheStats(entries, memory, database, miss,
+                lookups == 0 ? 0 : (double) (memory + database) / lookups,
+                memory + database, tokensSaved.get());
+    }
+
+    @Scheduled(cron = "${ai.cache.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        int removed = cacheRepository.deleteOlderThan(databaseTtlDays);
+        if (removed > 0) {
+            log.info("Cache de classificação: {} entradas expiradas removidas", removed);
+        }
+    }
+
+    private AITaskResult fromMemory(String key) {
+        synchronized (memory) {
+            CachedResult cached = memory.get(key);
+            if (cached == null) return null;
+            if (cached.expiresAtMillis() < System.currentTimeMillis()) {
+                memory.remove(key);
+                return null;
+            }
+            return cached.result();
+        }
+    }
+
+    private void remember(String key, AITaskResult result) {
+        long expiresAt = System.currentTimeMillis() + memoryTtlMinutes * 60_000;
+        synchronized (memory) {
+            memory.put(key, new CachedResult(result, expiresAt));
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null) return "";
+        StringBuilder out = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = out.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    out.append(' ');
+                    pendingSpace = false;
+                }
+                out.append(c);
+            }
+        }
+        return out.toString().toLowerCase(Locale.ROOT);
+    }
+}
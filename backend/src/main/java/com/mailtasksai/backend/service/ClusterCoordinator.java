@@ -0,0 +1,138 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.repository.MailboxLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Divide as caixas de e-mail entre as instâncias do backend. Cada nó publica um heartbeat no banco e
+// escolhe suas empresas por rendezvous hashing sobre os nós vivos: quando um nó entra ou sai, só as
+// empresas dele mudam de dono. Antes de consultar a caixa o nó ainda pega um lease com prazo, que
+// impede dois nós de rodarem a mesma empresa enquanto as visões de quem está vivo divergem.
+@Service
+@Slf4j
+public class ClusterCoordinator {
+
+    @Autowired private MailboxLeaseRepository leaseRepository;
+
+    @Value("${ingestion.cluster.node-ttl-seconds:30}")
+    private long nodeTtlSeconds;
+
+    @Value("${ingestion.cluster.lease-seconds:600}")
+    private long leaseSeconds;
+
+    @Value("${ingestion.cluster.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    // Thread própria em vez do scheduler do Spring: um ciclo de polling ou de treino demorado lá não pode
+    // atrasar o heartbeat além do node-ttl, senão os outros nós apagam os leases deste enquanto ele trabalha
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("cluster-heartbeat").daemon().factory());
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile List<String> liveNodes = List.of(nodeId);
+
+    @PostConstruct
+    void join() {
+        try {
+            heartbeat();
+            log.info("Nó de ingestão {} registrado ({} nós ativos)", nodeId, liveNodes.size());
+        } catch (Exception e) {
+            log.warn("Não foi possível registrar o nó de ingestão {}: {}", nodeId, e.getMessage());
+        }
+        heartbeatScheduler.scheduleWithFixedDelay(this::scheduledHeartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Uma exceção cancelaria as próximas execuções do scheduleWithFixedDelay
+    private void scheduledHeartbeat() {
+        try {
+            heartbeat();
+        } catch (Exception e) {
+            log.warn("Falha no heartbeat do nó de ingestão {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    public void heartbeat() {
+        leaseRepository.heartbeat(nodeId);
+        leaseRepository.deleteStaleNodes(nodeTtlSeconds);
+
+        List<String> nodes = leaseRepository.findLiveNodes(nodeTtlSeconds);
+        if (!nodes.contains(nodeId)) {
+            nodes = new ArrayList<>(nodes);
+            nodes.add(nodeId);
+        }
+        if (nodes.size() != liveNodes.size()) {
+            log.info("Nós de ingestão ativos: {}", nodes.size());
+        }
+        liveNodes = List.copyOf(nodes);
+    }
+
+    @PreDestroy
+    void leave() {
+        heartbeatScheduler.shutdownNow();
+        try {
+            leaseRepository.removeNode(nodeId);
+        } catch (Exception e) {
+            log.warn("Não foi possível remover o nó de ingestão {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    // Este nó é o dono preferencial da empresa segundo o rendezvous hashing?
+    public boolean owns(Long companyId) {
+        List<String> nodes = liveNodes;
+        if (nodes.size() <= 1) return true;
+
+        String owner = null;
+        long best = Long.MIN_VALUE;
+        for (String node : nodes) {
+            long weight = weight(companyId, node);
+            if (owner == null || weight > best) {
+                best = weight;
+                owner = node;
+            }
+        }
+        return nodeId.equals(owner);
+    }
+
+    public boolean tryLease(Long companyId) {
+        return leaseRepository.tryAcquire(companyId, nodeId, leaseSeconds);
+    }
+
+    public void release(Long companyId) {
+        try {
+            leaseRepository.release(companyId, nodeId);
+        } catch (Exception e) {
+            // O lease expira sozinho
+            log.warn("Não foi possível liberar o lease da empresa {}: {}", companyId, e.getMessage());
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private static long weight(Long companyId, String node) {
+        long hash = 0xcbf29ce484222325L; // FNV-1a 64
+        for (byte b : node.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= companyId * 0x9E3779B97F4A7C15L;
+        // SplitMix64 para espalhar bem a combinação
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
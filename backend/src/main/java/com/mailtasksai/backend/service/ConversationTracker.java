@@ -0,0 +1,86 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.TaskConversation;
+import com.mailtasksai.backend.model.TaskStatus;
+import com.mailtasksai.backend.model.UrgenciaEnum;
+import com.mailtasksai.backend.repository.TaskRepository;
+import com.mailtasksai.backend.util.PromptCompactor;
+import com.mailtasksai.backend.util.UrgencyHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Respostas numa conversa do Outlook que já tem tarefa aberta (PENDING ou VIEWED) são anexadas a ela
+// em vez de virar tarefa nova. Só voltam para o classificador quando o texto novo sugere que a
+// urgência pode ter subido. Conversas cuja primeira mensagem ainda está em classificação ficam
+// reservadas, para que as respostas que cheguem junto esperem a tarefa existir.
+@Service
+public class ConversationTracker {
+
+    private static final List<TaskStatus> OPEN_STATUSES = List.of(TaskStatus.PENDING, TaskStatus.VIEWED);
+
+    private record Reservation(String messageId, long reservedAt) {}
+
+    @Value("${ingestion.conversation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ingestion.conversation.pending-ttl-seconds:600}")
+    private long pendingTtlSeconds;
+
+    @Value("${ai.prompt.body-token-budget:400}")
+    private int bodyTokenBudget;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    // Uma consulta por página: conversationId -> tarefa aberta mais recente da conversa
+    public Map<String, TaskConversation> findOpenTasks(Long companyId, Collection<String> conversationIds) {
+        Map<String, TaskConversation> open = new HashMap<>();
+        if (!enabled || conversationIds.isEmpty()) return open;
+
+        for (TaskConversation task : taskRepository.findByConversationIds(companyId, conversationIds, OPEN_STATUSES)) {
+            open.putIfAbsent(task.getConversationId(), task);
+        }
+        return open;
+    }
+
+    // Tarefas já URGENTE não têm para onde subir
+    public boolean mayRaiseUrgency(TaskConversation task, String cleanBody) {
+        if (task.getUrgencia() == UrgenciaEnum.URGENTE) return false;
+        return UrgencyHints.mayRaiseUrgency(PromptCompactor.compact(cleanBody, bodyTokenBudget));
+    }
+
+    // false quando outra mensagem da mesma conversa está em classificação
+    public boolean reserve(Long companyId, String conversationId, String messageId) {
+        if (!enabled) return true;
+        long now = System.currentTimeMillis();
+        Reservation current = reservations.compute(key(companyId, conversationId), (key, existing) ->
+                existing == null || existing.messageId().equals(messageId)
+                        || existing.reservedAt() < now - pendingTtlSeconds * 1000
+                        ? new Reservation(messageId, now)
+                        : existing);
+        return current.messageId().equals(messageId);
+    }
+
+    public void release(Long companyId, String conversationId, String messageId) {
+        if (conversationId == null) return;
+        reservations.computeIfPresent(key(companyId, conversationId),
+                (key, existing) -> existing.messageId().equals(messageId) ? null : existing);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static String key(Long companyId, String conversationId) {
+        return companyId + ":" + conversationId;
+    }
+}
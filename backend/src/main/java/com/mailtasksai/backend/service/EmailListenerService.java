@@ -1,115 +1,130 @@
 package com.mailtasksai.backend.service;
 
-import com.mailtasksai.backend.dto.AITaskResult;
 import com.mailtasksai.backend.dto.EmailMessage;
 import com.mailtasksai.backend.model.Company;
-import com.mailtasksai.backend.model.Task;
-import com.mailtasksai.backend.model.TaskStatus;
 import com.mailtasksai.backend.model.User;
 import com.mailtasksai.backend.repository.CompanyRepository;
-import com.mailtasksai.backend.repository.TaskRepository;
 import com.mailtasksai.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 @Service
 @Slf4j
 public class EmailListenerService {
 
     @Autowired private CompanyRepository companyRepository;
-    @Autowired private TaskRepository taskRepository;
     @Autowired private UserRepository userRepository;
-    @Autowired private GraphApiClient graphApiClient;
-    @Autowired private AIProcessingService aiProcessingService;
     @Autowired private AuthService authService; // Injetamos o AuthService
+    @Autowired private MailboxSyncService mailboxSyncService;
+    @Autowired private IngestionPipeline ingestionPipeline;
+    @Autowired private ExecutorService mailboxPollingExecutor;
+    @Autowired private ClusterCoordinator clusterCoordinator;
 
-    @Scheduled(fixedDelay = 60000)
-    @Transactional // Importante para manter a sessão do banco aberta no loop
+    @Value("${ingestion.polling.max-concurrency:8}")
+    private int maxConcurrency;
+
+    private Semaphore pollingPermits;
+
+    // Empresas com ciclo em andamento; o próximo tick não dispara outro ciclo para elas
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        pollingPermits = new Semaphore(Math.max(1, maxConcurrency));
+    }
+
+    // Sem @Transactional: cada empresa roda na sua própria virtual thread e cada acesso ao banco
+    // abre uma transação curta, em vez de segurar uma única transação durante chamadas ao Graph/OpenAI.
+    // O tick é curto; cada empresa só é consultada quando chega o seu next_poll_at (ver PollingCadence).
+    @Scheduled(fixedDelayString = "${ingestion.polling.tick-ms:5000}")
     public void pollNewEmails() {
         // CORREÇÃO: Usa o novo método que traz tokens mesmo se expirados
         List<Company> companies = companyRepository.findAllConnectedCompanies();
+        Set<Long> notDue = mailboxSyncService.companiesNotDue();
 
         for (Company company : companies) {
-            try {
-                processCompanyEmails(company);
-            } catch (Exception e) {
-                log.error("Erro ao processar empresa: " + company.getName(), e);
+            // Com vários nós, cada empresa é consultada apenas pelo seu dono (ver ClusterCoordinator)
+            if (notDue.contains(company.getId()) || !clusterCoordinator.owns(company.getId())
+                    || !inFlight.add(company.getId())) {
+                continue;
+            }
+            mailboxPollingExecutor.submit(() -> pollCompany(company));
+        }
+    }
+
+    private void pollCompany(Company company) {
+        try {
+            pollingPermits.acquire();
+        } catch (InterruptedException e) {
+            inFlight.remove(company.getId());
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        boolean leased = false;
+        try {
+            leased = clusterCoordinator.tryLease(company.getId());
+            if (!leased) {
+                log.debug("Empresa {} está com lease de outro nó", company.getName());
+                return;
             }
+            if (!processCompanyEmails(company)) {
+                postpone(company);
+            }
+        } catch (Exception e) {
+            log.error("Erro ao processar empresa: " + company.getName(), e);
+            postpone(company);
+        } finally {
+            if (leased) {
+                clusterCoordinator.release(company.getId());
+            }
+            pollingPermits.release();
+            inFlight.remove(company.getId());
+        }
+    }
+
+    private void postpone(Company company) {
+        try {
+            mailboxSyncService.postpone(company);
+        } catch (Exception e) {
+            log.error("Não foi possível reagendar o polling da empresa {}", company.getName(), e);
         }
     }
 
-    private void processCompanyEmails(Company company) throws Exception {
+    private boolean processCompanyEmails(Company company) throws Exception {
         String accessToken = authService.getValidAccessToken(company);
 
         if (accessToken == null) {
             log.warn("Pular empresa {}: Não foi possível obter token válido.", company.getName());
-            return;
+            return false;
         }
 
-        User owner = userRepository.findAll().stream()
-                .filter(u -> u.getCompany().getId().equals(company.getId()))
-                .findFirst().orElse(null);
-        String ownerEmail = (owner != null) ? owner.getEmail() : "";
-
-        List<EmailMessage> emails = graphApiClient.getRecentEmails(accessToken, 5);
-
-        for (EmailMessage email : emails) {
-            try {
-                String senderEmail = email.getFrom() != null ? email.getFrom().getAddress() : "";
-
-                if (senderEmail.equalsIgnoreCase(ownerEmail)) {
-                    continue;
-                }
-
-                if (taskRepository.existsByEmailMessageId(email.getId())) continue;
-
-                AITaskResult aiResult = aiProcessingService.processEmail(email);
-                if (aiResult == null || aiResult.getResumoTarefa() == null) continue;
-
-                Task task = new Task();
-                task.setCompany(company);
-                task.setEmailMessageId(email.getId());
-                task.setResumoTarefa(aiResult.getResumoTarefa());
-                task.setUrgencia(aiResult.getUrgencia());
-                task.setCategoriaSugerida(aiResult.getCategoriaSugerida());
-                task.setFromEmail(senderEmail);
-                task.setReceivedAt(email.getReceivedDateTime());
-                task.setStatus(TaskStatus.PENDING);
-                task.setAiConfidence(aiResult.getConfidence());
-                task.setEmailSubject(email.getSubject());
-
-                // Lógica de limpeza de texto (Mantendo a sua versão corrigida)
-                String rawBody = email.getBody() != null ? email.getBody().getContent() : "";
-                String cleanBody = rawBody
-                        .replaceAll("(?i)<br\\s*/?>", "\n")
-                        .replaceAll("(?i)</?p>", "\n\n")
-                        .replaceAll("(?i)</?div>", "\n")
-                        .replaceAll("(?i)<ul>", "\n")
-                        .replaceAll("(?i)</ul>", "\n")
-                        .replaceAll("(?i)<li>", "\n• ")
-                        .replaceAll("(?i)</li>", "")
-                        .replaceAll("<[^>]+>", "")
-                        .replaceAll("&nbsp;", " ")
-                        .replaceAll("&quot;", "\"")
-                        .replaceAll("&amp;", "&")
-                        .replaceAll("&lt;", "<")
-                        .replaceAll("&gt;", ">")
-                        .replaceAll("\\n{3,}", "\n\n")
-                        .trim();
-
-                task.setEmailBody(cleanBody);
-
-                taskRepository.save(task);
-                log.info("Nova tarefa criada: {}", task.getResumoTarefa());
-
-            } catch (Exception e) {
-                log.error("Erro no e-mail ID: {}", email.getId(), e);
-            }
-        }
+        IngestionBatch batch = ingestionPipeline.openBatch(company, ownerEmail(company));
+        mailboxSyncService.sync(company, accessToken, batch::submit, batch::await);
+        return true;
+    }
+
+    // Entrada usada pela fila durável (webhooks e retentativas): aplica as mesmas regras do polling
+    // a mensagens já buscadas e devolve o lote concluído, com as mensagens que foram reagendadas
+    public IngestionBatch processMessages(Company company, List<EmailMessage> emails) {
+        IngestionBatch batch = ingestionPipeline.openBatch(company, ownerEmail(company));
+        batch.submit(emails);
+        batch.await();
+        return batch;
+    }
+
+    private String ownerEmail(Company company) {
+        User owner = userRepository.findFirstByCompanyId(company.getId()).orElse(null);
+        return (owner != null) ? owner.getEmail() : "";
     }
-}
\ No newline at end of file
+}
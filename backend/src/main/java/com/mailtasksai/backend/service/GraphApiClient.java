@@ -1,11 +1,14 @@
 package com.mailtasksai.backend.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mailtasksai.backend.dto.EmailMessage;
 import com.mailtasksai.backend.dto.GraphEmailResponse;
+import com.mailtasksai.backend.dto.GraphSubscriptionResponse;
 import com.mailtasksai.backend.model.CompanyTokens;
 import com.mailtasksai.backend.util.EncryptionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -13,12 +16,14 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 @Service
 @Slf4j
@@ -34,46 +39,164 @@ public class GraphApiClient {
     @Value("${azure.activedirectory.tenant-id}")
     private String tenantId;
 
+    @Value("${graph.sync.delta-folder:inbox}")
+    private String deltaFolder;
+
+    // "text" faz o Graph converter o corpo no servidor; "html" mantém o comportamento antigo
+    @Value("${graph.fetch.body-content-type:text}")
+    private String bodyContentType;
+
+    // Pede uniqueBody (só o trecho novo, sem o histórico citado da conversa) no lugar de body
+    @Value("${graph.fetch.unique-body:false}")
+    private boolean uniqueBody;
+
     private static final String TOKEN_ENDPOINT =
             "https://login.microsoftonline.com/%s/oauth2/v2.0/token";
 
+    private static final String MESSAGE_FIELDS = "id,subject,body,from,receivedDateTime,conversationId";
+    private static final String MESSAGE_FIELDS_UNIQUE_BODY = "id,subject,uniqueBody,from,receivedDateTime,conversationId";
+    private static final int PAGE_SIZE = 50;
+
     @Autowired
     private EncryptionService encryptionService;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Baseado no HttpClient do JDK (ver HttpClientConfig), que também suporta PATCH (renovação de assinaturas)
+    @Autowired
+    @Qualifier("graphRestTemplate")
+    private RestTemplate restTemplate;
+
+    @Autowired
+    @Qualifier("identityRestTemplate")
+    private RestTemplate identityRestTemplate;
 
-    public List<EmailMessage> getRecentEmails(String accessToken, int minutesAgo) throws Exception {
-        String filterDate = OffsetDateTime.now(ZoneOffset.UTC)
-                .minusMinutes(minutesAgo)
-                .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+    // skipBody: IDs para os quais o corpo não precisa ser lido (ver GraphMessagePageDecoder)
+    public GraphMessagePages openWindowPages(String accessToken, OffsetDateTime since, Predicate<String> skipBody) {
+        String filterDate = since.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
 
         String url = graphApiBaseUrl + "/me/messages" +
                 "?$filter=receivedDateTime ge " + filterDate +
                 "&$orderby=receivedDateTime desc" +
-                "&$select=id,subject,body,from,receivedDateTime" +
-                "&$top=50";
+                "&$select=" + messageFields() +
+                "&$top=" + PAGE_SIZE;
+
+        log.info("Buscando e-mails recentes do Graph API (Filtro: {})...", filterDate);
+
+        return new GraphMessagePages(uri -> fetchMessagePage(accessToken, uri, skipBody), restTemplate.getUriTemplateHandler().expand(url));
+    }
+
+    // Delta query da pasta configurada. Sem deltaLink inicia uma nova sincronização a partir de "since";
+    // com deltaLink traz apenas o que mudou desde o último cursor. O novo @odata.deltaLink fica
+    // disponível em GraphMessagePages#getDeltaLink depois da última página.
+    // Erros (inclusive 410 Gone para cursor expirado) são propagados para não avançar o cursor.
+    public GraphMessagePages openDeltaPages(String accessToken, String deltaLink, OffsetDateTime since, Predicate<String> skipBody) {
+        URI firstPage;
+        if (deltaLink != null) {
+            firstPage = URI.create(deltaLink);
+        } else {
+            String url = graphApiBaseUrl + "/me/mailFolders/" + deltaFolder + "/messages/delta" +
+                    "?$select=" + messageFields() +
+                    "&$filter=receivedDateTime ge " + since.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            firstPage = restTemplate.getUriTemplateHandler().expand(url);
+        }
+
+        log.info("Sincronizando e-mails via delta query ({})...", deltaLink != null ? "incremental" : "inicial");
+
+        return new GraphMessagePages(uri -> fetchMessagePage(accessToken, uri, skipBody), firstPage);
+    }
+
+    // A página é decodificada direto do stream da resposta, sem bufferizar o JSON inteiro
+    private GraphEmailResponse fetchMessagePage(String accessToken, URI uri, Predicate<String> skipBody) {
+        GraphEmailResponse page = restTemplate.execute(uri, HttpMethod.GET,
+                request -> {
+                    HttpHeaders headers = request.getHeaders();
+                    headers.setBearerAuth(accessToken);
+                    headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+                    headers.add("Prefer", "odata.maxpagesize=" + PAGE_SIZE);
+                    addBodyPreference(headers);
+                },
+                response -> GraphMessagePageDecoder.decode(response.getBody(), objectMapper, skipBody));
+        if (page == null) {
+            throw new RuntimeException("Resposta vazia do Graph API");
+        }
+        page.getValue().forEach(this::useUniqueBody);
+        return page;
+    }
+
+    public EmailMessage getMessage(String accessToken, String messageId) {
+        String url = graphApiBaseUrl + "/me/messages/{id}?$select=" + messageFields();
 
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(accessToken);
+        addBodyPreference(headers);
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
-        log.info("Buscando e-mails recentes do Graph API (Filtro: {})...", filterDate);
+        EmailMessage message = restTemplate.exchange(url, HttpMethod.GET, entity, EmailMessage.class, messageId).getBody();
+        if (message != null) {
+            useUniqueBody(message);
+        }
+        return message;
+    }
 
-        try {
-            ResponseEntity<GraphEmailResponse> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    entity,
-                    GraphEmailResponse.class
-            );
-
-            return response.getBody() != null ? response.getBody().getValue() : List.of();
-        } catch (Exception e) {
-            log.error("Erro ao buscar e-mails do Graph API: {}", e.getMessage());
-            return List.of();
+    private String messageFields() {
+        return uniqueBody ? MESSAGE_FIELDS_UNIQUE_BODY : MESSAGE_FIELDS;
+    }
+
+    private void addBodyPreference(HttpHeaders headers) {
+        if ("text".equalsIgnoreCase(bodyContentType)) {
+            headers.add("Prefer", "outlook.body-content-type=\"text\"");
+        }
+    }
+
+    // O restante do código só olha para body; quando pedimos uniqueBody ele passa a ser o corpo
+    private void useUniqueBody(EmailMessage message) {
+        if (message.getUniqueBody() != null) {
+            message.setBody(message.getUniqueBody());
+            message.setUniqueBody(null);
         }
     }
 
+    public GraphSubscriptionResponse createSubscription(String accessToken, String notificationUrl,
+                                                       String clientState, OffsetDateTime expiresAt) {
+        Map<String, Object> subscription = Map.of(
+                "changeType", "created",
+                "notificationUrl", notificationUrl,
+                "resource", "me/mailFolders('" + deltaFolder + "')/messages",
+                "expirationDateTime", expiresAt.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME),
+                "clientState", clientState
+        );
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        return restTemplate.postForEntity(
+                graphApiBaseUrl + "/subscriptions",
+                new HttpEntity<>(subscription, headers),
+                GraphSubscriptionResponse.class
+        ).getBody();
+    }
+
+    public GraphSubscriptionResponse renewSubscription(String accessToken, String subscriptionId, OffsetDateTime expiresAt) {
+        Map<String, Object> patch = Map.of(
+                "expirationDateTime", expiresAt.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)
+        );
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        return restTemplate.exchange(
+                graphApiBaseUrl + "/subscriptions/{id}",
+                HttpMethod.PATCH,
+                new HttpEntity<>(patch, headers),
+                GraphSubscriptionResponse.class,
+                subscriptionId
+        ).getBody();
+    }
+
     public CompanyTokens refreshAccessToken(String refreshToken) throws Exception {
         log.info("Access token expirado. Renovando...");
 
@@ -89,7 +212,7 @@ public class GraphApiClient {
 
         HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(params, headers);
 
-        ResponseEntity<Map> response = restTemplate.postForEntity(
+        ResponseEntity<Map> response = identityRestTemplate.postForEntity(
                 String.format(TOKEN_ENDPOINT, tenantId),
                 request,
                 Map.class
@@ -0,0 +1,91 @@
+package com.mailtasksai.backend.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mailtasksai.backend.dto.EmailMessage;
+import com.mailtasksai.backend.dto.GraphEmailResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Lê uma página de mensagens do Graph direto do stream da resposta com o JsonParser do Jackson,
+// entregando cada mensagem ao sink assim que o objeto dela termina. Quando o "id" já é
+// (possivelmente) conhecido, o corpo é pulado sem ser materializado e a mensagem sai com
+// bodySkipped = true. O Graph devolve "id" antes dos demais campos; se o corpo vier antes do id,
+// ele é lido normalmente.
+final class GraphMessagePageDecoder {
+
+    private GraphMessagePageDecoder() {
+    }
+
+    static GraphEmailResponse decode(InputStream in, ObjectMapper objectMapper,
+                                     Predicate<String> skipBody, Consumer<EmailMessage> sink) throws IOException {
+        GraphEmailResponse page = new GraphEmailResponse();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Resposta do Graph API não é um objeto JSON");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                switch (field) {
+                    case "value" -> {
+                        if (value != JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            sink.accept(readMessage(parser, objectMapper, skipBody));
+                        }
+                    }
+                    case "@odata.nextLink" -> page.setNextLink(parser.getValueAsString());
+                    case "@odata.deltaLink" -> page.setDeltaLink(parser.getValueAsString());
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return page;
+    }
+
+    static GraphEmailResponse decode(InputStream in, ObjectMapper objectMapper, Predicate<String> skipBody) throws IOException {
+        List<EmailMessage> messages = new ArrayList<>();
+        GraphEmailResponse page = decode(in, objectMapper, skipBody, messages::add);
+        page.setValue(messages);
+        return page;
+    }
+
+    private static EmailMessage readMessage(JsonParser parser, ObjectMapper objectMapper,
+                                            Predicate<String> skipBody) throws IOException {
+        ObjectNode fields = objectMapper.createObjectNode();
+        String id = null;
+        boolean bodySkipped = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            if ("id".equals(field)) {
+                id = parser.getValueAsString();
+                fields.put("id", id);
+            } else if (("body".equals(field) || "uniqueBody".equals(field)) && id != null && skipBody.test(id)) {
+                parser.skipChildren();
+                bodySkipped = true;
+            } else {
+                fields.set(field, objectMapper.readTree(parser));
+            }
+        }
+
+        EmailMessage message = objectMapper.treeToValue(fields, EmailMessage.class);
+        message.setBodySkipped(bodySkipped);
+        return message;
+    }
+}
@@ -0,0 +1,83 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.EmailMessage;
+import com.mailtasksai.backend.dto.GraphEmailResponse;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+// Iterador preguiçoso sobre as páginas de uma consulta de mensagens do Graph.
+// Enquanto o chamador processa a página atual, a próxima (@odata.nextLink) já está sendo baixada
+// em uma virtual thread; no máximo duas páginas ficam em memória ao mesmo tempo.
+public class GraphMessagePages implements Iterator<List<EmailMessage>>, AutoCloseable {
+
+    private final Function<URI, GraphEmailResponse> pageFetcher;
+    private CompletableFuture<GraphEmailResponse> nextPage;
+    private String deltaLink;
+
+    GraphMessagePages(Function<URI, GraphEmailResponse> pageFetcher, URI firstPage) {
+        this.pageFetcher = pageFetcher;
+        this.nextPage = prefetch(firstPage);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextPage != null;
+    }
+
+    @Override
+    public List<EmailMessage> next() {
+        if (nextPage == null) {
+            throw new NoSuchElementException();
+        }
+
+        GraphEmailResponse page = await(nextPage);
+        if (page.getNextLink() != null) {
+            nextPage = prefetch(URI.create(page.getNextLink()));
+        } else {
+            nextPage = null;
+            deltaLink = page.getDeltaLink();
+        }
+
+        List<EmailMessage> messages = page.getValue() != null ? page.getValue() : List.of();
+        return messages.stream()
+                .filter(message -> message.getRemoved() == null)
+                .toList();
+    }
+
+    // Disponível somente depois da última página de uma delta query
+    public String getDeltaLink() {
+        return deltaLink;
+    }
+
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+    }
+
+    private CompletableFuture<GraphEmailResponse> prefetch(URI uri) {
+        return CompletableFuture.supplyAsync(
+                () -> pageFetcher.apply(uri),
+                task -> Thread.ofVirtual().name("graph-page-prefetch").start(task)
+        );
+    }
+
+    private static GraphEmailResponse await(CompletableFuture<GraphEmailResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.GraphNotification;
+import com.mailtasksai.backend.dto.GraphSubscriptionResponse;
+import com.mailtasksai.backend.model.Company;
+import com.mailtasksai.backend.model.GraphSubscription;
+import com.mailtasksai.backend.repository.CompanyRepository;
+import com.mailtasksai.backend.repository.GraphSubscriptionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+// Gerencia as assinaturas de change notifications do Graph (uma por empresa conectada),
+// criando as que faltam e renovando as que estão perto de expirar.
+@Service
+@Slf4j
+public class GraphSubscriptionService {
+
+    @Autowired private CompanyRepository companyRepository;
+    @Autowired private GraphSubscriptionRepository subscriptionRepository;
+    @Autowired private GraphApiClient graphApiClient;
+    @Autowired private AuthService authService;
+    @Autowired private ClusterCoordinator clusterCoordinator;
+
+    @Value("${graph.webhook.enabled:false}")
+    private boolean enabled;
+
+    @Value("${graph.webhook.notification-url}")
+    private String notificationUrl;
+
+    // Mensagens do Outlook aceitam no máximo ~3 dias de validade por assinatura
+    @Value("${graph.webhook.subscription-minutes:2880}")
+    private long subscriptionMinutes;
+
+    @Value("${graph.webhook.renew-before-minutes:720}")
+    private long renewBeforeMinutes;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Scheduled(fixedDelayString = "${graph.webhook.renew-interval-ms:600000}", initialDelay = 30000)
+    public void maintainSubscriptions() {
+        if (!enabled) return;
+
+        List<Company> companies = companyRepository.findAllConnectedCompanies();
+        for (Company company : companies) {
+            // Mesmo particionamento do polling: só o nó dono cria/renova a assinatura da empresa
+            if (!clusterCoordinator.owns(company.getId())) continue;
+            try {
+                maintainSubscription(company);
+            } catch (Exception e) {
+                log.error("Erro ao manter assinatura do Graph para empresa {}: {}", company.getName(), e.getMessage());
+            }
+        }
+    }
+
+    // Retorna a empresa dona da assinatura quando a notificação é autêntica (clientState confere)
+    public Optional<Long> resolveCompanyId(GraphNotification notification) {
+        if (notification.getSubscriptionId() == null || notification.getClientState() == null) {
+            return Optional.empty();
+        }
+
+        return subscriptionRepository.findBySubscriptionId(notification.getSubscriptionId())
+                .filter(subscription -> MessageDigest.isEqual(
+                        subscription.getClientState().getBytes(StandardCharsets.UTF_8),
+                        notification.getClientState().getBytes(StandardCharsets.UTF_8)))
+                .map(subscription -> subscription.getCompany().getId());
+    }
+
+    private void maintainSubscription(Company company) {
+        GraphSubscription subscription = subscriptionRepository.findByCompanyId(company.getId()).orElse(null);
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+
+        if (subscription != null && subscription.getExpiresAt().isAfter(now.plusMinutes(renewBeforeMinutes))) {
+            return;
+        }
+
+        String accessToken = authService.getValidAccessToken(company);
+        if (accessToken == null) {
+            log.warn("Assinatura do Graph não renovada para empresa {}: sem token válido.", company.getName());
+            return;
+        }
+
+        OffsetDateTime expiresAt = OffsetDateTime.now(ZoneOffset.UTC).plusMinutes(subscriptionMinutes);
+
+        if (subscription != null && subscription.getExpiresAt().isAfter(now)) {
+            try {
+                GraphSubscriptionResponse renewed = graphApiClient.renewSubscription(
+                        accessToken, subscription.getSubscriptionId(), expiresAt);
+                subscription.setExpiresAt(toUtc(renewed != null ? renewed.getExpirationDateTime() : expiresAt));
+                subscriptionRepository.save(subscription);
+                log.info("Assinatura do Graph renovada para empresa {}", company.getName());
+                return;
+            } catch (HttpClientErrorException.NotFound e) {
+                log.warn("Assinatura {} não existe mais no Graph. Criando outra.", subscription.getSubscriptionId());
+            }
+        }
+
+        String clientState = newClientState();
+        GraphSubscriptionResponse created = graphApiClient.createSubscription(accessToken, notificationUrl, clientState, expiresAt);
+        if (created == null || created.getId() == null) {
+            throw new RuntimeException("Graph não retornou a assinatura criada");
+        }
+
+        if (subscription == null) {
+            subscription = new GraphSubscription();
+            subscription.setCompany(company);
+        }
+        subscription.setSubscriptionId(created.getId());
+        subscription.setClientState(clientState);
+        subscription.setResource(created.getResource() != null ? created.getResource() : "");
+        subscription.setExpiresAt(toUtc(created.getExpirationDateTime() != null ? created.getExpirationDateTime() : expiresAt));
+        subscriptionRepository.save(subscription);
+
+        log.info("Assinatura do Graph criada para empresa {}", company.getName());
+    }
+
+    private String newClientState() {
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+    }
+
+    private LocalDateTime toUtc(OffsetDateTime dateTime) {
+        return dateTime.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+}
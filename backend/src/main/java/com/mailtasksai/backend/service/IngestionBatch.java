@@ -0,0 +1,85 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.EmailMessage;
+import com.mailtasksai.backend.model.Company;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Conjunto de e-mails de uma empresa enviados ao pipeline num mesmo ciclo.
+// Permite ao produtor esperar que tudo o que enviou tenha saído do pipeline antes de avançar o cursor.
+public class IngestionBatch {
+
+    @Getter
+    private final Company company;
+    @Getter
+    private final String ownerEmail;
+    private final IngestionPipeline pipeline;
+
+    // Começa em 1: a "vaga" do produtor, liberada em await(), impede que o lote termine no meio do envio
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final Set<String> deferredMessageIds = ConcurrentHashMap.newKeySet();
+
+    IngestionBatch(IngestionPipeline pipeline, Company company, String ownerEmail) {
+        this.pipeline = pipeline;
+        this.company = company;
+        this.ownerEmail = ownerEmail;
+    }
+
+    // Bloqueia quando a primeira fila do pipeline está cheia: é assim que a busca no Graph é freada
+    public void submit(List<EmailMessage> emails) {
+        for (EmailMessage email : emails) {
+            pending.incrementAndGet();
+            try {
+                pipeline.enqueue(new IngestionItem(this, email));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                itemDone();
+                throw new RuntimeException("Ingestão interrompida", e);
+            }
+        }
+    }
+
+    // Espera todos os itens saírem do pipeline; falha se algum não pôde ser gravado
+    public void await() {
+        itemDone();
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Ingestão interrompida", e);
+        }
+
+        if (failure.get() != null) {
+            throw new RuntimeException("Falha ao gravar tarefas da empresa " + company.getName(), failure.get());
+        }
+    }
+
+    // Mensagens que falharam de forma recuperável e foram para a fila de retentativas
+    public Set<String> getDeferredMessageIds() {
+        return deferredMessageIds;
+    }
+
+    void itemDeferred(String messageId) {
+        deferredMessageIds.add(messageId);
+        itemDone();
+    }
+
+    void itemDone() {
+        if (pending.decrementAndGet() == 0) {
+            finished.countDown();
+        }
+    }
+
+    void itemFailed(Exception cause) {
+        failure.compareAndSet(null, cause);
+        itemDone();
+    }
+}
@@ -0,0 +1,56 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.AITaskResult;
+import com.mailtasksai.backend.dto.EmailMessage;
+import com.mailtasksai.backend.dto.TaskConversation;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Um e-mail atravessando o pipeline de ingestão; cada estágio preenche a sua parte
+@Getter
+@Setter
+class IngestionItem {
+
+    private final IngestionBatch batch;
+    private final EmailMessage email;
+    private String senderEmail;
+    private String cleanBody;
+    private AITaskResult aiResult;
+    // SimHash do conteúdo; null quando o texto é curto demais ou a detecção de quase-duplicatas está desligada
+    private Long fingerprint;
+    // Resposta numa conversa com tarefa aberta que voltou ao classificador só para reavaliar a urgência
+    private TaskConversation followUpOf;
+    // Estágio com a posse do item; o que foi encaminhado não é mais responsabilidade do estágio anterior
+    private volatile PipelineStage stage;
+    // done/defer/fail contam uma vez só no lote, mesmo se um estágio falhar depois de concluir o item
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    IngestionItem(IngestionBatch batch, EmailMessage email) {
+        this.batch = batch;
+        this.email = email;
+    }
+
+    // Saiu do pipeline: virou tarefa ou foi descartado de propósito (duplicado, enviado pelo dono etc.)
+    void done() {
+        if (finished.compareAndSet(false, true)) {
+            batch.itemDone();
+        }
+    }
+
+    // Falha recuperável: a mensagem já está na fila durável de retentativas
+    void defer() {
+        if (finished.compareAndSet(false, true)) {
+            batch.itemDeferred(email.getId());
+        }
+    }
+
+    void fail(Exception cause) {
+        if (finished.compareAndSet(false, true)) {
+            batch.itemFailed(cause);
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.AITaskResult;
+import com.mailtasksai.backend.dto.EmailMessage;
+import com.mailtasksai.backend.dto.EmailMessageBody;
+import com.mailtasksai.backend.dto.PipelineStageStats;
+import com.mailtasksai.backend.dto.TaskConversation;
+import com.mailtasksai.backend.model.ClassificationSource;
+import com.mailtasksai.backend.model.Company;
+import com.mailtasksai.backend.model.Task;
+import com.mailtasksai.backend.model.TaskMessage;
+import com.mailtasksai.backend.model.TaskStatus;
+import com.mailtasksai.backend.model.UrgenciaEnum;
+import com.mailtasksai.backend.repository.IngestionWorkItemRepository;
+import com.mailtasksai.backend.repository.TaskBatchRepository;
+import com.mailtasksai.backend.repository.TaskMessageRepository;
+import com.mailtasksai.backend.util.HtmlToTextConverter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+// Pipeline de ingestão em estágios: (busca) -> normalize -> dedupe -> classify -> persist.
+// Cada estágio tem fila limitada e workers próprios; quando um estágio adiante enche, os anteriores
+// bloqueiam no put e, no fim da cadeia, a busca no Graph para de puxar páginas.
+@Service
+@Slf4j
+public class IngestionPipeline {
+
+    @Autowired private MessageDeduplicator messageDeduplicator;
+    @Autowired private AIProcessingService aiProcessingService;
+    @Autowired private LocalTaskClassifier localTaskClassifier;
+    @Autowired private TaskBatchRepository taskBatchRepository;
+    @Autowired private IngestionWorkItemRepository workItemRepository;
+    @Autowired private ExecutorService aiClassificationExecutor;
+    @Autowired private NearDuplicateIndex nearDuplicateIndex;
+    @Autowired private TaskMessageRepository taskMessageRepository;
+    @Autowired private ConversationTracker conversationTracker;
+
+    // Espera antes de tentar de novo um e-mail cuja cópia ainda está sendo classificada
+    @Value("${ingestion.near-duplicate.pending-retry-seconds:30}")
+    private long nearDuplicateRetrySeconds;
+
+    @Value("${ingestion.conversation.pending-retry-seconds:30}")
+    private long conversationRetrySeconds;
+
+    @Value("${ingestion.pipeline.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${ingestion.pipeline.batch-size:50}")
+    private int batchSize;
+
+    @Value("${ingestion.pipeline.normalize-workers:2}")
+    private int normalizeWorkers;
+
+    @Value("${ingestion.pipeline.dedupe-workers:1}")
+    private int dedupeWorkers;
+
+    // Um worker por chamada em voo que o OpenAIRateLimiter pode liberar; o limite de verdade fica com ele
+    @Value("${ingestion.pipeline.classify-workers:${ai.rate-limit.max-concurrency:32}}")
+    private int classifyWorkers;
+
+    // Cada lote do classify vira uma chamada à IA com vários e-mails (AIProcessingService.processEmails)
+    @Value("${ai.batch.max-emails:8}")
+    private int classifyBatchSize;
+
+    // Espera por mais e-mails antes de classificar um lote incompleto
+    @Value("${ingestion.pipeline.classify-linger-ms:200}")
+    private long classifyLingerMs;
+
+    @Value("${ingestion.pipeline.persist-workers:1}")
+    private int persistWorkers;
+
+    private PipelineStage normalizeStage;
+    private PipelineStage dedupeStage;
+    private PipelineStage classifyStage;
+    private PipelineStage persistStage;
+
+    @PostConstruct
+    void start() {
+        normalizeStage = new PipelineStage("normalize", queueCapacity, normalizeWorkers, 1, this::normalize);
+        dedupeStage = new PipelineStage("dedupe", queueCapacity, dedupeWorkers, batchSize, this::dedupe);
+        classifyStage = new PipelineStage("classify", queueCapacity, classifyWorkers,
+                Math.max(2, classifyBatchSize), classifyLingerMs, this::classify);
+        persistStage = new PipelineStage("persist", queueCapacity, persistWorkers, batchSize, this::persist);
+
+        List.of(normalizeStage, dedupeStage, classifyStage, persistStage).forEach(PipelineStage::start);
+    }
+
+    @PreDestroy
+    void stop() {
+        List.of(normalizeStage, dedupeStage, classifyStage, persistStage).forEach(PipelineStage::stop);
+    }
+
+    public IngestionBatch openBatch(Company company, String ownerEmail) {
+        return new IngestionBatch(this, company, ownerEmail);
+    }
+
+    public List<PipelineStageStats> getStats() {
+        return List.of(normalizeStage.stats(), dedupeStage.stats(), classifyStage.stats(), persistStage.stats());
+    }
+
+    void enqueue(IngestionItem item) throws InterruptedException {
+        normalizeStage.put(item);
+    }
+
+    private void normalize(List<IngestionItem> items) {
+        for (IngestionItem item : items) {
+            EmailMessage email = item.getEmail();
+            String senderEmail = email.getFrom() != null ? email.getFrom().getAddress() : "";
+
+            if (senderEmail == null || senderEmail.equalsIgnoreCase(item.getBatch().getOwnerEmail())) {
+                item.done();
+                continue;
+            }
+
+            item.setSenderEmail(senderEmail);
+            item.setCleanBody(toText(email.getBody()));
+            forward(dedupeStage, item);
+        }
+    }
+
+    // O Graph normalmente já entrega texto; o conversor de HTML só roda quando o corpo veio em HTML
+    private String toText(EmailMessageBody body) {
+        if (body == null) return "";
+        return body.isHtml()
+                ? HtmlToTextConverter.toText(body.getContent())
+                : HtmlToTextConverter.normalizeText(body.getContent());
+    }
+
+    private void dedupe(List<IngestionItem> items) {
+        for (List<IngestionItem> companyItems : groupByCompany(items).values()) {
+            Long companyId = companyItems.get(0).getBatch().getCompany().getId();
+            Set<String> newMessageIds;
+            try {
+                newMessageIds = messageDeduplicator.filterNew(
+                        companyId, companyItems.stream().map(item -> item.getEmail().getId()).toList());
+            } catch (Exception e) {
+                log.error("Erro ao deduplicar e-mails da empresa {}", companyId, e);
+                companyItems.forEach(item -> item.fail(e));
+                continue;
+            }
+
+            Map<String, TaskConversation> openTasks;
+            try {
+                openTasks = conversationTracker.findOpenTasks(companyId, companyItems.stream()
+                        .filter(item -> newMessageIds.contains(item.getEmail().getId()))
+                        .map(item -> item.getEmail().getConversationId())
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()));
+            } catch (Exception e) {
+                log.warn("Falha ao buscar tarefas abertas das conversas da empresa {}: {}", companyId, e.getMessage());
+                openTasks = Map.of();
+            }
+
+            for (IngestionItem item : companyItems) {
+                if (!newMessageIds.contains(item.getEmail().getId())) {
+                    item.done();
+                } else if (!attachToConversation(companyId, item, openTasks)
+                        && !attachToNearDuplicate(companyId, item)) {
+                    forward(classifyStage, item);
+                }
+            }
+        }
+    }
+
+    // Resposta numa conversa com tarefa aberta: anexa à tarefa e só reclassifica se a urgência pode ter subido
+    private boolean attachToConversation(Long companyId, IngestionItem item, Map<String, TaskConversation> openTasks) {
+        EmailMessage email = item.getEmail();
+        String conversationId = email.getConversationId();
+        if (conversationId == null || !conversationTracker.isEnabled()) return false;
+
+        try {
+            TaskConversation open = openTasks.get(conversationId);
+            if (open == null) {
+                if (conversationTracker.reserve(companyId, conversationId, email.getId())) return false;
+                workItemRepository.scheduleRetry(companyId, email.getId(),
+                        "Aguardando a tarefa da conversa", conversationRetrySeconds);
+                item.defer();
+                return true;
+            }
+
+            if (conversationTracker.mayRaiseUrgency(open, item.getCleanBody())) {
+                item.setFollowUpOf(open);
+                forward(classifyStage, item);
+                return true;
+            }
+
+            attach(companyId, item, open.getId(), null);
+            log.info("Resposta \"{}\" anexada à tarefa {} da conversa", email.getSubject(), open.getId());
+            item.done();
+            return true;
+        } catch (Exception e) {
+            log.warn("Falha ao anexar o e-mail ID {} à conversa: {}", email.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void attach(Long companyId, IngestionItem item, Long taskId, Double similarity) {
+        EmailMessage email = item.getEmail();
+        TaskMessage attached = new TaskMessage();
+        attached.setTaskId(taskId);
+        attached.setCompanyId(companyId);
+        attached.setEmailMessageId(email.getId());
+        attached.setFromEmail(item.getSenderEmail());
+        attached.setEmailSubject(email.getSubject());
+        attached.setReceivedAt(email.getReceivedDateTime());
+        attached.setSimilarity(similarity);
+        taskMessageRepository.attach(attached);
+        messageDeduplicator.markKnown(companyId, email.getId());
+    }
+
+    // Lembrete, encaminhamento ou cópia de um pedido recente: anexa à tarefa existente sem chamar a IA.
+    // Se a tarefa parecida ainda está sendo classificada, o e-mail volta para a fila de retentativas.
+    private boolean attachToNearDuplicate(Long companyId, IngestionItem item) {
+        EmailMessage email = item.getEmail();
+        try {
+            Long fingerprint = nearDuplicateIndex.fingerprint(email.getSubject(), item.getCleanBody());
+            if (fingerprint == null) return false;
+            item.setFingerprint(fingerprint);
+
+            NearDuplicateIndex.Match match = nearDuplicateIndex
+                    .matchOrReserve(companyId, email.getId(), fingerprint, email.getSubject(), email.getReceivedDateTime())
+                    .orElse(null);
+            if (match == null) return false;
+
+            // Não vai virar tarefa agora: libera a conversa reservada em attachToConversation
+            releaseReservation(item);
+            if (match.isPending()) {
+                workItemRepository.scheduleRetry(companyId, email.getId(),
+                        "Aguardando a tarefa do e-mail parecido " + match.messageId(), nearDuplicateRetrySeconds);
+                item.defer();
+                return true;
+            }
+
+            attach(companyId, item, match.taskId(), match.similarity());
+            log.info("E-mail \"{}\" anexado à tarefa {} (similaridade {})",
+                    email.getSubject(), match.taskId(), String.format("%.2f", match.similarity()));
+            item.done();
+            return true;
+        } catch (Exception e) {
+            // Na dúvida o e-mail segue o caminho normal e vira uma tarefa própria
+            log.warn("Falha na detecção de quase-duplicatas do e-mail ID {}: {}", email.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    // Os itens drenados juntos vão numa única chamada em lote; quem ficar sem resultado
+    // (resposta incompleta ou inválida) cai para a classificação individual
+    private void classify(List<IngestionItem> items) {
+        // E-mails rotineiros que o classificador local resolve com confiança nem chegam à OpenAI
+        List<IngestionItem> uncertain = new ArrayList<>(items.size());
+        for (IngestionItem item : items) {
+            AITaskResult local = classifyLocally(item);
+            if (local != null) {
+                item.setAiResult(local);
+                forward(persistStage, item);
+            } else {
+                uncertain.add(item);
+            }
+        }
+        if (uncertain.isEmpty()) return;
+        items = uncertain;
+
+        // Lotes só com e-mails da mesma empresa, para o consumo de tokens ser atribuído a ela
+        Map<String, AITaskResult> batchResults = new HashMap<>();
+        Set<String> cacheChecked = new HashSet<>();
+        Map<Long, AIRateLimitException> rateLimited = new HashMap<>();
+        for (List<IngestionItem> companyItems : groupByCompany(items).values()) {
+            Long companyId = companyItems.get(0).getBatch().getCompany().getId();
+            try {
+                List<EmailMessage> emails = companyItems.stream().map(IngestionItem::getEmail).toList();
+                AIProcessingService.BatchClassification batch = aiProcessingService.processEmails(companyId, emails);
+                batchResults.putAll(batch.results());
+                emails.forEach(email -> cacheChecked.add(email.getId()));
+                if (batch.rateLimited() != null) {
+                    rateLimited.put(companyId, batch.rateLimited());
+                }
+            } catch (Exception e) {
+                log.warn("Falha na classificação em lote da empresa {}: {}", companyId, e.getMessage());
+            }
+        }
+
+        // Cada e-mail segue em paralelo para persist assim que a sua classificação termina
+        Map<String, AITaskResult> resolved = batchResults;
+        List<Future<?>> calls = new ArrayList<>(items.size());
+        for (IngestionItem item : items) {
+            String messageId = item.getEmail().getId();
+            AIRateLimitException rateLimit = rateLimited.get(item.getBatch().getCompany().getId());
+            if (rateLimit != null && !resolved.containsKey(messageId)) {
+                deferToRetryQueue(item, rateLimit);
+                continue;
+            }
+            calls.add(aiClassificationExecutor.submit(
+                    () -> classify(item, resolved.get(messageId), cacheChecked.contains(messageId))));
+        }
+        for (Future<?> call : calls) {
+            try {
+                call.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Falha inesperada na classificação", e.getCause());
+            }
+        }
+    }
+
+    private AITaskResult classifyLocally(IngestionItem item) {
+        try {
+            Long companyId = item.getBatch().getCompany().getId();
+            return localTaskClassifier
+                    .classify(companyId, item.getEmail().getSubject(), item.getCleanBody(), item.getSenderEmail())
+                    .orElse(null);
+        } catch (Exception e) {
+            log.warn("Falha no classificador local: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void classify(IngestionItem item, AITaskResult batchResult, boolean cacheChecked) {
+        try {
+            AITaskResult aiResult = batchResult != null
+                    ? batchResult
+                    : aiProcessingService.processEmail(item.getBatch().getCompany().getId(), item.getEmail(), cacheChecked);
+            if (item.getFollowUpOf() != null) {
+                // Resposta numa conversa: é anexada à tarefa mesmo que a IA não veja uma tarefa nova nela
+                item.setAiResult(aiResult);
+                forward(persistStage, item);
+                return;
+            }
+            if (aiResult == null || aiResult.getResumoTarefa() == null) {
+                releaseReservation(item);
+                item.done();
+                return;
+            }
+            item.setAiResult(aiResult);
+            forward(persistStage, item);
+        } catch (Exception e) {
+            log.warn("Erro ao classificar e-mail ID {}. Reagendando: {}", item.getEmail().getId(), e.getMessage());
+            deferToRetryQueue(item, e);
+        }
+    }
+
+    // Uma ida ao banco por empresa no lote; duplicatas criadas por outro ciclo ou nó são descartadas pelo ON CONFLICT
+    private void persist(List<IngestionItem> items) {
+        for (List<IngestionItem> companyItems : groupByCompany(items).values()) {
+            Company company = companyItems.get(0).getBatch().getCompany();
+
+            List<IngestionItem> followUps = companyItems.stream().filter(item -> item.getFollowUpOf() != null).toList();
+            followUps.forEach(item -> persistFollowUp(company.getId(), item));
+            companyItems = companyItems.stream().filter(item -> item.getFollowUpOf() == null).toList();
+            if (companyItems.isEmpty()) continue;
+
+            List<Task> tasks = companyItems.stream().map(this::toTask).toList();
+
+            try {
+                Map<String, Long> inserted = taskBatchRepository.insertIgnoringDuplicates(tasks);
+                for (Task task : tasks) {
+                    messageDeduplicator.markKnown(company.getId(), task.getEmailMessageId());
+                    Long taskId = inserted.get(task.getEmailMessageId());
+                    if (taskId != null) {
+                        nearDuplicateIndex.confirm(company.getId(), task.getEmailMessageId(), taskId);
+                        log.info("Nova tarefa criada: {}", task.getResumoTarefa());
+                    } else {
+                        nearDuplicateIndex.release(company.getId(), task.getEmailMessageId());
+                    }
+                    // Daqui em diante as respostas da conversa encontram a tarefa no banco
+                    conversationTracker.release(company.getId(), task.getConversationId(), task.getEmailMessageId());
+                }
+                companyItems.forEach(IngestionItem::done);
+            } catch (Exception e) {
+                log.error("Erro ao gravar tarefas da empresa {}", company.getName(), e);
+                companyItems.forEach(this::releaseReservation);
+                companyItems.forEach(item -> item.fail(e));
+            }
+        }
+    }
+
+    // Urgências em ordem decrescente no enum: a resposta só sobe a urgência da tarefa, nunca a rebaixa
+    private void persistFollowUp(Long companyId, IngestionItem item) {
+        TaskConversation task = item.getFollowUpOf();
+        UrgenciaEnum urgencia = item.getAiResult() != null ? item.getAiResult().getUrgencia() : null;
+        try {
+            attach(companyId, item, task.getId(), null);
+            if (urgencia != null && urgencia.ordinal() < task.getUrgencia().ordinal()
+                    && taskBatchRepository.raiseUrgency(task.getId(), urgencia)) {
+                log.info("Urgência da tarefa {} elevada para {} por uma resposta na conversa", task.getId(), urgencia);
+            }
+            item.done();
+        } catch (Exception e) {
+            log.error("Erro ao anexar a resposta ID {} à tarefa {}", item.getEmail().getId(), task.getId(), e);
+            item.fail(e);
+        }
+    }
+
+    private Task toTask(IngestionItem item) {
+        EmailMessage email = item.getEmail();
+        AITaskResult aiResult = item.getAiResult();
+
+        Task task = new Task();
+        task.setCompany(item.getBatch().getCompany());
+        task.setEmailMessageId(email.getId());
+        task.setConversationId(email.getConversationId());
+        task.setResumoTarefa(aiResult.getResumoTarefa());
+        task.setUrgencia(aiResult.getUrgencia());
+        task.setCategoriaSugerida(aiResult.getCategoriaSugerida());
+        task.setFromEmail(item.getSenderEmail());
+        task.setReceivedAt(email.getReceivedDateTime());
+        task.setStatus(TaskStatus.PENDING);
+        task.setAiConfidence(aiResult.getConfidence());
+        task.setClassificationSource(aiResult.getSource() != null ? aiResult.getSource() : ClassificationSource.LLM);
+        task.setEmailSubject(email.getSubject());
+        task.setEmailBody(item.getCleanBody());
+        task.setContentFingerprint(item.getFingerprint());
+        return task;
+    }
+
+    private void deferToRetryQueue(IngestionItem item, Exception cause) {
+        releaseReservation(item);
+        try {
+            Long companyId = item.getBatch().getCompany().getId();
+            if (cause instanceof AIRateLimitException rateLimit) {
+                // 429 da OpenAI: volta depois do Retry-After sem gastar uma das tentativas do e-mail
+                workItemRepository.postpone(companyId, item.getEmail().getId(), cause.getMessage(), rateLimit.getRetryAfterSeconds());
+            } else {
+                workItemRepository.scheduleRetry(companyId, item.getEmail().getId(), cause.getMessage());
+            }
+            item.defer();
+        } catch (Exception e) {
+            log.error("Não foi possível reagendar o e-mail ID {}", item.getEmail().getId(), e);
+            item.fail(e);
+        }
+    }
+
+    private void releaseReservation(IngestionItem item) {
+        Long companyId = item.getBatch().getCompany().getId();
+        if (item.getFingerprint() != null) {
+            nearDuplicateIndex.release(companyId, item.getEmail().getId());
+        }
+        conversationTracker.release(companyId, item.getEmail().getConversationId(), item.getEmail().getId());
+    }
+
+    private void forward(PipelineStage next, IngestionItem item) {
+        try {
+            next.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            item.fail(e);
+        }
+    }
+
+    private Map<Long, List<IngestionItem>> groupByCompany(List<IngestionItem> items) {
+        return items.stream().collect(Collectors.groupingBy(
+                item -> item.getBatch().getCompany().getId(), LinkedHashMap::new, Collectors.toCollection(ArrayList::new)));
+    }
+}
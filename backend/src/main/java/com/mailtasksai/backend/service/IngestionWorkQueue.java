@@ -0,0 +1,132 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.EmailMessage;
+import com.mailtasksai.backend.model.Company;
+import com.mailtasksai.backend.repository.CompanyRepository;
+import com.mailtasksai.backend.repository.IngestionWorkItemRepository;
+import com.mailtasksai.backend.repository.IngestionWorkItemRepository.ClaimedWorkItem;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Consome a fila durável ingestion_work_items: mensagens avisadas pelos webhooks do Graph e
+// e-mails cuja classificação falhou (timeout, 429...). Cada item reivindicado é buscado no Graph e
+// passa pelo pipeline normal; sucesso remove o item, falha reagenda com backoff exponencial.
+@Service
+@Slf4j
+public class IngestionWorkQueue {
+
+    @Autowired private IngestionWorkItemRepository workItemRepository;
+    @Autowired private CompanyRepository companyRepository;
+    @Autowired private GraphApiClient graphApiClient;
+    @Autowired private AuthService authService;
+    @Autowired private MessageDeduplicator messageDeduplicator;
+    @Autowired private EmailListenerService emailListenerService;
+    @Autowired private ExecutorService mailboxPollingExecutor;
+
+    @Value("${ingestion.retry.claim-batch-size:50}")
+    private int claimBatchSize;
+
+    @Value("${ingestion.retry.lease-seconds:300}")
+    private long leaseSeconds;
+
+    // Itens reivindicados ainda em processamento; limita o total em voo a claim-batch-size
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public void enqueue(Long companyId, String messageId) {
+        workItemRepository.enqueue(companyId, messageId);
+    }
+
+    // Só reivindica e distribui: o processamento roda no executor de polling e não segura a thread do
+    // scheduler. Itens de um nó que cair no meio voltam sozinhos quando vence o lease (next_attempt_at).
+    @Scheduled(fixedDelayString = "${ingestion.retry.poll-interval-ms:2000}")
+    public void drain() {
+        int capacity = claimBatchSize - inFlight.get();
+        if (capacity <= 0) return;
+
+        List<ClaimedWorkItem> claimed = workItemRepository.claimDue(capacity, leaseSeconds);
+        if (claimed.isEmpty()) return;
+
+        inFlight.addAndGet(claimed.size());
+        claimed.stream()
+                .collect(Collectors.groupingBy(ClaimedWorkItem::companyId))
+                .forEach((companyId, items) -> mailboxPollingExecutor.submit(() -> {
+                    try {
+                        processCompanyItems(companyId, items);
+                    } catch (Exception e) {
+                        log.error("Falha inesperada ao consumir a fila de ingestão da empresa {}", companyId, e);
+                    } finally {
+                        inFlight.addAndGet(-items.size());
+                    }
+                }));
+    }
+
+    private void processCompanyItems(Long companyId, List<ClaimedWorkItem> items) {
+        Company company = companyRepository.findConnectedCompany(companyId).orElse(null);
+        if (company == null) {
+            // Empresa desconectada: não há como buscar as mensagens
+            items.forEach(item -> workItemRepository.complete(item.id()));
+            return;
+        }
+
+        String accessToken = authService.getValidAccessToken(company);
+        if (accessToken == null) {
+            items.forEach(item -> retry(companyId, item, "Sem token válido para a empresa"));
+            return;
+        }
+
+        Set<String> newMessageIds = messageDeduplicator.filterNew(
+                companyId, items.stream().map(ClaimedWorkItem::messageId).toList());
+
+        List<EmailMessage> emails = new ArrayList<>();
+        List<ClaimedWorkItem> fetched = new ArrayList<>();
+        for (ClaimedWorkItem item : items) {
+            if (!newMessageIds.contains(item.messageId())) {
+                workItemRepository.complete(item.id());
+                continue;
+            }
+            try {
+                EmailMessage email = graphApiClient.getMessage(accessToken, item.messageId());
+                if (email == null) {
+                    workItemRepository.complete(item.id());
+                    continue;
+                }
+                emails.add(email);
+                fetched.add(item);
+            } catch (HttpClientErrorException.NotFound e) {
+                workItemRepository.complete(item.id()); // mensagem apagada da caixa
+            } catch (Exception e) {
+                retry(companyId, item, e.getMessage());
+            }
+        }
+
+        if (emails.isEmpty()) return;
+
+        try {
+            IngestionBatch batch = emailListenerService.processMessages(company, emails);
+            for (ClaimedWorkItem item : fetched) {
+                // Itens reagendados pelo pipeline já tiveram tentativa e próximo horário atualizados
+                if (!batch.getDeferredMessageIds().contains(item.messageId())) {
+                    workItemRepository.complete(item.id());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Erro ao processar itens da fila para empresa {}", company.getName(), e);
+            fetched.forEach(item -> retry(companyId, item, e.getMessage()));
+        }
+    }
+
+    private void retry(Long companyId, ClaimedWorkItem item, String error) {
+        workItemRepository.scheduleRetry(companyId, item.messageId(), error);
+    }
+}
@@ -18,9 +18,13 @@ public class JwtService {
     @Value("${jwt.secret}")
     private String secretKey;
 
-    public String generateToken(String email) {
+    // role vai como claim para o JwtFilter montar as permissões sem consultar o banco a cada requisição
+    public String generateToken(String subject, String role) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, email);
+        if (role != null) {
+            claims.put("role", role);
+        }
+        return createToken(claims, subject);
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
@@ -50,4 +54,9 @@ public class JwtService {
         return Jwts.parserBuilder().setSigningKey(getSignKey()).build()
                 .parseClaimsJws(token).getBody().getSubject();
     }
+
+    public String extractRole(String token) {
+        return Jwts.parserBuilder().setSigningKey(getSignKey()).build()
+                .parseClaimsJws(token).getBody().get("role", String.class);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.AITaskResult;
+import com.mailtasksai.backend.dto.LocalClassifierStats;
+import com.mailtasksai.backend.dto.TaskTrainingExample;
+import com.mailtasksai.backend.model.ClassificationSource;
+import com.mailtasksai.backend.model.UrgenciaEnum;
+import com.mailtasksai.backend.repository.TaskRepository;
+import com.mailtasksai.backend.util.HashedFeatures;
+import com.mailtasksai.backend.util.NaiveBayesClassifier;
+import com.mailtasksai.backend.util.NaiveBayesClassifier.Prediction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Classificador local treinado com as tarefas já gravadas (urgência e categoria rotuladas pela IA
+// ou corrigidas pelos usuários). Dois Naive Bayes sobre n-gramas com hash: um para urgência, outro
+// para categoria. Só responde quando os dois estão acima do limiar de confiança; o resto vai para a OpenAI.
+// O resumo, que o modelo local não sabe gerar, é extraído do assunto e do início do corpo.
+// Um modelo só para todas as empresas: um por empresa custaria ~2 MB cada (contadores por rótulo) e
+// empresas pequenas nunca chegariam ao mínimo de exemplos. A empresa entra como feature, para o modelo
+// aprender o viés de cada uma; o que passa entre empresas são só os rótulos (urgência e categoria).
+@Service
+@Slf4j
+public class LocalTaskClassifier {
+
+    private static final int FEATURE_BUCKETS = 1 << 16;
+    private static final int TRAINING_PAGE_SIZE = 1000;
+    private static final int MAX_BODY_CHARS_FOR_FEATURES = 4000;
+    private static final int MAX_SUMMARY_CHARS = 300;
+
+    @Autowired private TaskRepository taskRepository;
+
+    @Value("${ai.local-classifier.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.local-classifier.confidence-threshold:0.97}")
+    private double confidenceThreshold;
+
+    @Value("${ai.local-classifier.min-training-examples:500}")
+    private long minTrainingExamples;
+
+    // Categorias com poucos exemplos não são previstas localmente
+    @Value("${ai.local-classifier.min-class-examples:20}")
+    private long minClassExamples;
+
+    private volatile Model model = new Model();
+    private final AtomicLong answeredLocally = new AtomicLong();
+    private final AtomicLong sentToLlm = new AtomicLong();
+
+    private static final class Model {
+        private final NaiveBayesClassifier urgency = new NaiveBayesClassifier(FEATURE_BUCKETS);
+        private final NaiveBayesClassifier category = new NaiveBayesClassifier(FEATURE_BUCKETS);
+        private volatile long lastTrainedId;
+    }
+
+    // Em segundo plano para não atrasar a subida; até terminar, tudo vai para a IA
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) return;
+        Thread.ofVirtual().name("local-classifier-warmup").start(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("Falha ao treinar o classificador local", e);
+            }
+        });
+    }
+
+    // Treino incremental: só as tarefas criadas depois da última passada
+    @Scheduled(fixedDelayString = "${ai.local-classifier.train-interval-ms:600000}",
+            initialDelayString = "${ai.local-classifier.train-interval-ms:600000}")
+    public synchronized void trainIncrementally() {
+        if (!enabled) return;
+        int trained = train(model);
+        if (trained > 0) {
+            log.debug("Classificador local: {} novos exemplos", trained);
+        }
+    }
+
+    // Retreino completo periódico para incorporar correções feitas pelos usuários em tarefas antigas
+    @Scheduled(cron = "${ai.local-classifier.rebuild-cron:0 0 4 * * *}")
+    public synchronized void rebuild() {
+        if (!enabled) return;
+        Model fresh = new Model();
+        int trained = train(fresh);
+        model = fresh;
+        log.info("Classificador local treinado com {} tarefas", trained);
+    }
+
+    public Optional<AITaskResult> classify(Long companyId, String subject, String body, String senderEmail) {
+        Model current = model;
+        if (!enabled || current.urgency.getTotalDocuments() < minTrainingExamples) {
+            return Optional.empty();
+        }
+
+        int[] features = features(companyId, subject, body, senderEmail);
+        Prediction urgency = current.urgency.predict(features);
+        Prediction category = current.category.predict(features);
+
+        if (urgency == null || category == null
+                || urgency.probability() < confidenceThreshold
+                || category.probability() < confidenceThreshold
+                || category.labelDocuments() < minClassExamples) {
+            sentToLlm.incrementAndGet();
+            return Optional.empty();
+        }
+
+        AITaskResult result = new AITaskResult();
+        result.setUrgencia(UrgenciaEnum.valueOf(urgency.label()));
+        result.setCategoriaSugerida(category.label());
+        result.setResumoTarefa(extractSummary(subject, body));
+        result.setConfidence(Math.min(urgency.probability(), category.probability()));
+        result.setSource(ClassificationSource.LOCAL);
+
+        answeredLocally.incrementAndGet();
+        return Optional.of(result);
+    }
+
+    public LocalClassifierStats getStats() {
+        return new LocalClassifierStats(model.urgency.getTotalDocuments(), answeredLocally.get(), sentToLlm.get(),
+                confidenceThreshold);
+    }
+
+    private int train(Model target) {
+        int trained = 0;
+        while (true) {
+            List<TaskTrainingExample> page = taskRepository.findTrainingExamplesAfter(
+                    target.lastTrainedId, PageRequest.of(0, TRAINING_PAGE_SIZE));
+            for (TaskTrainingExample example : page) {
+                if (example.getUrgencia() != null && example.getCategoriaSugerida() != null) {
+                    int[] features = features(example.getCompanyId(), example.getEmailSubject(), example.getEmailBody(),
+                            example.getFromEmail());
+                    target.urgency.train(features, example.getUrgencia().name());
+                    // Rótulo como está gravado: relatórios contam a categoria pelo nome exato
+                    target.category.train(features, example.getCategoriaSugerida().trim());
+                    trained++;
+                }
+                target.lastTrainedId = example.getId();
+            }
+            if (page.size() < TRAINING_PAGE_SIZE) {
+                return trained;
+            }
+        }
+    }
+
+    // Assunto entra duas vezes para pesar mais que o corpo; empresa e domínio do remetente viram tokens
+    private static int[] features(Long companyId, String subject, String body, String senderEmail) {
+        String company = companyId != null ? "empresa_" + companyId : "";
+        String domain = senderEmail != null && senderEmail.contains("@")
+                ? "remetente_" + senderEmail.substring(senderEmail.lastIndexOf('@') + 1).replace('.', '_')
+                : "";
+        String safeSubject = subject != null ? subject : "";
+        String safeBody = body == null ? "" : body.length() > MAX_BODY_CHARS_FOR_FEATURES
+                ? body.substring(0, MAX_BODY_CHARS_FOR_FEATURES)
+                : body;
+        return HashedFeatures.extract(company + " " + domain + " " + safeSubject + " " + safeSubject + " " + safeBody, FEATURE_BUCKETS);
+    }
+
+    private static String extractSummary(String subject, String body) {
+        StringBuilder summary = new StringBuilder(subject != null ? subject.trim() : "");
+        if (body != null) {
+            for (String line : body.split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty()) continue;
+                if (!summary.isEmpty()) summary.append(" - ");
+                summary.append(trimmed);
+                if (summary.length() >= MAX_SUMMARY_CHARS) break;
+            }
+        }
+        return summary.length() > MAX_SUMMARY_CHARS
+                ? summary.substring(0, MAX_SUMMARY_CHARS - 3) + "..."
+                : summary.toString();
+    }
+}
@@ -0,0 +1,175 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.EmailMessage;
+import com.mailtasksai.backend.model.Company;
+import com.mailtasksai.backend.model.MailboxSyncState;
+import com.mailtasksai.backend.repository.MailboxSyncStateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+@Service
+@Slf4j
+public class MailboxSyncService {
+
+    @Autowired private GraphApiClient graphApiClient;
+    @Autowired private MailboxSyncStateRepository syncStateRepository;
+    @Autowired private PollingCadence pollingCadence;
+    @Autowired private MessageDeduplicator messageDeduplicator;
+
+    @Value("${graph.sync.mode:delta}")
+    private String syncMode;
+
+    @Value("${graph.sync.initial-window-minutes:5}")
+    private int initialWindowMinutes;
+
+    // Percorre as páginas de mensagens novas da empresa, entregando cada uma ao pageHandler assim que chega.
+    // O cursor só avança depois que todas as páginas foram processadas: se algo falhar no meio,
+    // o próximo ciclo busca tudo de novo a partir do cursor anterior.
+    // beforeCommit roda depois da última página e antes de gravar o cursor (ex.: esperar o pipeline esvaziar).
+    // Ao gravar o cursor também agenda a próxima consulta conforme o volume de mensagens encontrado.
+    public void sync(Company company, String accessToken, Consumer<List<EmailMessage>> pageHandler, Runnable beforeCommit) {
+        MailboxSyncState state = syncStateRepository.findByCompanyId(company.getId()).orElse(null);
+        LocalDateTime since = state != null && state.getLastReceivedAt() != null
+                ? state.getLastReceivedAt()
+                : LocalDateTime.now(ZoneOffset.UTC).minusMinutes(initialWindowMinutes);
+
+        boolean deltaMode = !"window".equalsIgnoreCase(syncMode);
+        String deltaLink = deltaMode && state != null ? state.getDeltaLink() : null;
+
+        SyncProgress progress = new SyncProgress(company.getId(), accessToken, since);
+        String newDeltaLink;
+        try (GraphMessagePages pages = openPages(company, accessToken, deltaMode, deltaLink, since)) {
+            consume(pages, pageHandler, progress);
+            newDeltaLink = pages.getDeltaLink();
+        } catch (HttpClientErrorException.Gone e) {
+            if (deltaLink == null) {
+                throw e;
+            }
+            // Cursor expirado no Graph: recomeça a sincronização a partir do último watermark
+            log.warn("Delta link expirado para empresa {}. Reiniciando sincronização desde {}", company.getName(), since);
+            try (GraphMessagePages pages = openPages(company, accessToken, true, null, since)) {
+                consume(pages, pageHandler, progress);
+                newDeltaLink = pages.getDeltaLink();
+            }
+        }
+
+        beforeCommit.run();
+        commit(company, newDeltaLink, progress);
+    }
+
+    // Mensagens que o Bloom filter já conhece têm o corpo pulado durante o parse da página
+    private GraphMessagePages openPages(Company company, String accessToken, boolean deltaMode, String deltaLink, LocalDateTime since) {
+        Predicate<String> skipBody = messageId -> messageDeduplicator.mightBeKnown(company.getId(), messageId);
+        return deltaMode
+                ? graphApiClient.openDeltaPages(accessToken, deltaLink, since.atOffset(ZoneOffset.UTC), skipBody)
+                : graphApiClient.openWindowPages(accessToken, since.atOffset(ZoneOffset.UTC), skipBody);
+    }
+
+    private void consume(GraphMessagePages pages, Consumer<List<EmailMessage>> pageHandler, SyncProgress progress) {
+        while (pages.hasNext()) {
+            List<EmailMessage> page = pages.next();
+            List<EmailMessage> pending = resolveSkippedBodies(page, progress);
+            progress.watermark = latestReceivedAt(page, progress.watermark);
+            progress.messages += pending.size();
+            if (!pending.isEmpty()) {
+                pageHandler.accept(pending);
+            }
+        }
+    }
+
+    // Confirma no banco as mensagens cujo corpo foi pulado: as já processadas saem da página e os
+    // falsos positivos do Bloom filter são buscados de novo, agora com corpo.
+    private List<EmailMessage> resolveSkippedBodies(List<EmailMessage> page, SyncProgress progress) {
+        List<String> skippedIds = page.stream()
+                .filter(EmailMessage::isBodySkipped)
+                .map(EmailMessage::getId)
+                .toList();
+        if (skippedIds.isEmpty()) {
+            return page;
+        }
+
+        Set<String> fresh = messageDeduplicator.filterNew(progress.companyId, skippedIds);
+        List<EmailMessage> pending = new ArrayList<>(page.size());
+        for (EmailMessage message : page) {
+            if (!message.isBodySkipped()) {
+                pending.add(message);
+            } else if (fresh.contains(message.getId())) {
+                EmailMessage full = graphApiClient.getMessage(progress.accessToken, message.getId());
+                if (full != null) {
+                    pending.add(full);
+                }
+            }
+        }
+        return pending;
+    }
+
+    private void commit(Company company, String deltaLink, SyncProgress progress) {
+        MailboxSyncState state = syncStateRepository.findByCompanyId(company.getId())
+                .orElseGet(MailboxSyncState::new);
+        LocalDateTime now = LocalDateTime.now();
+
+        state.setCompany(company);
+        if (deltaLink != null) {
+            state.setDeltaLink(deltaLink);
+        }
+        state.setLastReceivedAt(progress.watermark);
+        pollingCadence.recordPoll(state, progress.messages, now);
+        state.setLastSyncedAt(now);
+
+        syncStateRepository.save(state);
+    }
+
+    // Ciclo que falhou antes de gravar o cursor: adia a próxima tentativa sem mexer no cursor
+    public void postpone(Company company) {
+        MailboxSyncState state = syncStateRepository.findByCompanyId(company.getId())
+                .orElseGet(MailboxSyncState::new);
+
+        state.setCompany(company);
+        pollingCadence.recordFailure(state, LocalDateTime.now());
+
+        syncStateRepository.save(state);
+    }
+
+    // Empresas que ainda não chegaram no horário da próxima consulta
+    public Set<Long> companiesNotDue() {
+        return syncStateRepository.findCompanyIdsNotDueAt(LocalDateTime.now());
+    }
+
+    public void reset(Long companyId) {
+        syncStateRepository.deleteByCompanyId(companyId);
+    }
+
+    private LocalDateTime latestReceivedAt(List<EmailMessage> messages, LocalDateTime current) {
+        LocalDateTime latest = current;
+        for (EmailMessage message : messages) {
+            if (message.getReceivedDateTime() != null && message.getReceivedDateTime().isAfter(latest)) {
+                latest = message.getReceivedDateTime();
+            }
+        }
+        return latest;
+    }
+
+    private static class SyncProgress {
+        private final Long companyId;
+        private final String accessToken;
+        private LocalDateTime watermark;
+        private int messages;
+
+        private SyncProgress(Long companyId, String accessToken, LocalDateTime watermark) {
+            this.companyId = companyId;
+            this.accessToken = accessToken;
+            this.watermark = watermark;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.model.Company;
+import com.mailtasksai.backend.repository.CompanyRepository;
+import com.mailtasksai.backend.repository.TaskMessageRepository;
+import com.mailtasksai.backend.repository.TaskRepository;
+import com.mailtasksai.backend.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Deduplicação das mensagens recebidas por página, não por e-mail.
+// Um Bloom filter por empresa responde "com certeza é nova" sem ir ao banco; os IDs que o filtro
+// marca como possivelmente conhecidos são confirmados numa única consulta IN por página,
+// para que um falso positivo nunca descarte um e-mail novo.
+@Service
+@Slf4j
+public class MessageDeduplicator {
+
+    @Autowired private TaskRepository taskRepository;
+    @Autowired private CompanyRepository companyRepository;
+    @Autowired private TaskMessageRepository taskMessageRepository;
+
+    @Value("${ingestion.dedup.bloom-fpp:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${ingestion.dedup.bloom-min-capacity:10000}")
+    private long minCapacity;
+
+    private final Map<Long, BloomFilter> filters = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (Company company : companyRepository.findAll()) {
+            try {
+                rebuild(company.getId());
+            } catch (Exception e) {
+                log.error("Falha ao carregar filtro de deduplicação da empresa {}", company.getName(), e);
+            }
+        }
+        log.info("Filtros de deduplicação carregados para {} empresas", filters.size());
+    }
+
+    public Set<String> filterNew(Long companyId, Collection<String> messageIds) {
+        Set<String> fresh = new LinkedHashSet<>(messageIds);
+        BloomFilter filter = filterFor(companyId);
+
+        List<String> maybeKnown = new ArrayList<>();
+        for (String messageId : fresh) {
+            if (filter == null || filter.mightContain(messageId)) {
+                maybeKnown.add(messageId);
+            }
+        }
+
+        if (!maybeKnown.isEmpty()) {
+            fresh.removeAll(taskRepository.findExistingMessageIds(companyId, maybeKnown));
+            // E-mails anexados a uma tarefa existente (quase-duplicatas) também já foram processados
+            fresh.removeAll(taskMessageRepository.findExistingMessageIds(companyId, maybeKnown));
+        }
+        return fresh;
+    }
+
+    // Consulta só o Bloom filter, sem ir ao banco: false significa "com certeza é nova".
+    // Sem filtro carregado responde false, para que ninguém deixe de ler uma mensagem por isso.
+    public boolean mightBeKnown(Long companyId, String messageId) {
+        BloomFilter filter = filters.get(companyId);
+        return filter != null && filter.mightContain(messageId);
+    }
+
+    public boolean isNew(Long companyId, String messageId) {
+        return !filterNew(companyId, List.of(messageId)).isEmpty();
+    }
+
+    public void markKnown(Long companyId, String messageId) {
+        BloomFilter filter = filters.get(companyId);
+        if (filter != null) {
+            filter.put(messageId);
+        }
+    }
+
+    private BloomFilter filterFor(Long companyId) {
+        BloomFilter filter = filters.get(companyId);
+        if (filter == null || filter.isSaturated()) {
+            try {
+                filter = rebuild(companyId);
+            } catch (Exception e) {
+                // Sem filtro todos os IDs são confirmados no banco: mais lento, mas correto
+                log.warn("Falha ao reconstruir filtro de deduplicação da empresa {}: {}", companyId, e.getMessage());
+            }
+        }
+        return filter;
+    }
+
+    private BloomFilter rebuild(Long companyId) {
+        List<String> messageIds = new ArrayList<>(taskRepository.findEmailMessageIdsByCompanyId(companyId));
+        messageIds.addAll(taskMessageRepository.findMessageIdsByCompanyId(companyId));
+        BloomFilter filter = new BloomFilter(Math.max(minCapacity, messageIds.size() * 2L), falsePositiveRate);
+        messageIds.forEach(filter::put);
+        filters.put(companyId, filter);
+        return filter;
+    }
+}
@@ -0,0 +1,197 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.TaskFingerprint;
+import com.mailtasksai.backend.repository.TaskRepository;
+import com.mailtasksai.backend.util.PromptCompactor;
+import com.mailtasksai.backend.util.SimHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+// Índice por empresa das impressões digitais (SimHash) das tarefas recentes, para anexar lembretes,
+// encaminhamentos e cópias do mesmo pedido à tarefa existente em vez de criar outra e chamar a IA de novo.
+// Cada empresa tem poucas tarefas dentro da janela, então a busca é uma varredura linear com popcount.
+// Além da distância, o assunto sem prefixos precisa ser o mesmo: o SimHash sozinho não separa um lembrete
+// de um pedido novo que só troca a rota ou a quantidade.
+// E-mails ainda em classificação entram como reserva: uma cópia que chegue junto espera a tarefa ser criada.
+@Service
+@Slf4j
+public class NearDuplicateIndex {
+
+    private static final Pattern SUBJECT_PREFIX = Pattern.compile(
+            "^\\s*((re|res|fw|fwd|enc|tr)\\s*(\\[\\d+])?\\s*:\\s*)+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int FINGERPRINT_TOKEN_BUDGET = 2000;
+
+    public record Match(Long taskId, String messageId, double similarity) {
+        // A tarefa do e-mail parecido ainda não foi gravada
+        public boolean isPending() {
+            return taskId == null;
+        }
+    }
+
+    @Value("${ingestion.near-duplicate.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ingestion.near-duplicate.similarity-threshold:0.95}")
+    private double similarityThreshold;
+
+    @Value("${ingestion.near-duplicate.window-hours:72}")
+    private long windowHours;
+
+    @Value("${ingestion.near-duplicate.min-tokens:20}")
+    private int minTokens;
+
+    // Outros nós também criam tarefas para a empresa; o índice é recarregado do banco periodicamente
+    @Value("${ingestion.near-duplicate.reload-minutes:10}")
+    private long reloadMinutes;
+
+    @Value("${ingestion.near-duplicate.pending-ttl-seconds:600}")
+    private long pendingTtlSeconds;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    private final Map<Long, CompanyIndex> indexes = new ConcurrentHashMap<>();
+
+    // Assunto sem "RE:/FW:/ENC:" + corpo sem histórico citado e assinatura; null para textos curtos demais
+    public Long fingerprint(String subject, String cleanBody) {
+        if (!enabled) return null;
+        String body = PromptCompactor.compact(cleanBody, FINGERPRINT_TOKEN_BUDGET);
+        return SimHash.compute(subjectKey(subject) + "\n" + body, minTokens);
+    }
+
+    // Procura a tarefa mais parecida dentro da janela; sem nenhuma acima do limiar, reserva o e-mail
+    // para que cópias que cheguem enquanto ele é classificado sejam anexadas à tarefa dele
+    public Optional<Match> matchOrReserve(Long companyId, String messageId, long fingerprint, String subject,
+                                          LocalDateTime receivedAt) {
+        String subjectKey = subjectKey(subject);
+        CompanyIndex index = indexFor(companyId);
+        synchronized (index) {
+            Optional<Match> match = index.closest(messageId, fingerprint, subjectKey, receivedAt, maxDistance());
+            if (match.isEmpty()) {
+                index.add(new Entry(null, messageId, fingerprint, subjectKey, receivedAt, LocalDateTime.now()));
+            }
+            return match;
+        }
+    }
+
+    public void confirm(Long companyId, String messageId, Long taskId) {
+        CompanyIndex index = indexes.get(companyId);
+        if (index == null) return;
+        synchronized (index) {
+            index.replace(messageId, entry -> new Entry(taskId, messageId, entry.fingerprint(), entry.subjectKey(),
+                    entry.receivedAt(), null));
+        }
+    }
+
+    // O e-mail reservado não virou tarefa (descartado, reagendado ou com erro)
+    public void release(Long companyId, String messageId) {
+        CompanyIndex index = indexes.get(companyId);
+        if (index == null) return;
+        synchronized (index) {
+            index.entries.removeIf(entry -> entry.isPending() && entry.messageId().equals(messageId));
+        }
+    }
+
+    // "RE: Cotação  SP x CWB" e "cotação sp x cwb" são o mesmo assunto
+    private static String subjectKey(String subject) {
+        if (subject == null) return "";
+        String stripped = SUBJECT_PREFIX.matcher(subject).replaceFirst("");
+        return WHITESPACE.matcher(stripped.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private int maxDistance() {
+        return (int) Math.floor((1.0 - similarityThreshold) * SimHash.BITS);
+    }
+
+    private CompanyIndex indexFor(Long companyId) {
+        CompanyIndex index = indexes.computeIfAbsent(companyId, id -> new CompanyIndex());
+        synchronized (index) {
+            LocalDateTime now = LocalDateTime.now();
+            if (index.loadedAt == null || index.loadedAt.isBefore(now.minusMinutes(reloadMinutes))) {
+                reload(companyId, index, now);
+            } else {
+                index.evict(now);
+            }
+        }
+        return index;
+    }
+
+    // Mantém as reservas em andamento: elas ainda não existem no banco
+    private void reload(Long companyId, CompanyIndex index, LocalDateTime now) {
+        List<TaskFingerprint> tasks = taskRepository.findFingerprintsSince(companyId, now.minusHours(windowHours));
+        List<Entry> pending = index.entries.stream().filter(Entry::isPending).toList();
+
+        index.entries.clear();
+        for (TaskFingerprint task : tasks) {
+            index.add(new Entry(task.getId(), task.getEmailMessageId(), task.getContentFingerprint(),
+                    subjectKey(task.getEmailSubject()), task.getReceivedAt(), null));
+        }
+        pending.forEach(index::add);
+        index.loadedAt = now;
+        index.evict(now);
+        log.debug("Índice de quase-duplicatas da empresa {} carregado com {} tarefas", companyId, tasks.size());
+    }
+
+    private record Entry(Long taskId, String messageId, long fingerprint, String subjectKey,
+                         LocalDateTime receivedAt, LocalDateTime reservedAt) {
+        boolean isPending() {
+            return taskId == null;
+        }
+    }
+
+    private class CompanyIndex {
+        private final List<Entry> entries = new ArrayList<>();
+        private LocalDateTime loadedAt;
+
+        void add(Entry entry) {
+            entries.add(entry);
+        }
+
+        void replace(String messageId, UnaryOperator<Entry> update) {
+            entries.replaceAll(entry -> entry.isPending() && entry.messageId().equals(messageId) ? update.apply(entry) : entry);
+        }
+
+        Optional<Match> closest(String messageId, long fingerprint, String subjectKey, LocalDateTime receivedAt,
+                                int maxDistance) {
+            Entry best = null;
+            int bestDistance = maxDistance + 1;
+            for (Entry entry : entries) {
+                if (entry.messageId().equals(messageId)) continue; // reserva da própria mensagem numa retentativa
+                if (!entry.subjectKey().equals(subjectKey)) continue;
+                int distance = SimHash.distance(fingerprint, entry.fingerprint());
+                if (distance < bestDistance && withinWindow(entry.receivedAt(), receivedAt)) {
+                    best = entry;
+                    bestDistance = distance;
+                }
+            }
+            if (best == null) return Optional.empty();
+            return Optional.of(new Match(best.taskId(), best.messageId(), 1.0 - (double) bestDistance / SimHash.BITS));
+        }
+
+        void evict(LocalDateTime now) {
+            LocalDateTime windowStart = now.minusHours(windowHours);
+            LocalDateTime pendingExpiry = now.minusSeconds(pendingTtlSeconds);
+            entries.removeIf(entry -> (entry.receivedAt() != null && entry.receivedAt().isBefore(windowStart))
+                    || (entry.isPending() && entry.reservedAt().isBefore(pendingExpiry)));
+        }
+
+        private boolean withinWindow(LocalDateTime a, LocalDateTime b) {
+            if (a == null || b == null) return true;
+            return Duration.between(a, b).abs().toHours() < windowHours;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.OpenAIChatRequest;
+import com.mailtasksai.backend.dto.OpenAIMessage;
+import com.mailtasksai.backend.dto.OpenAIResponse;
+import com.mailtasksai.backend.dto.OpenAIUsage;
+import com.mailtasksai.backend.util.TokenEstimator;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Qualquer endpoint compatível com /v1/chat/completions da OpenAI: a própria OpenAI, outro modelo
+// mais barato, ou um servidor self-hosted. rateLimiter é opcional (só para quem tem cota RPM/TPM).
+// O tempo limite vale só para a requisição HTTP: a espera na fila do rate limiter não conta.
+public class OpenAICompatibleProvider implements AIProvider {
+
+    private final String name;
+    private final String url;
+    private final String model;
+    private final String apiKey;
+    private final RestTemplate restTemplate;
+    private final OpenAIRateLimiter rateLimiter;
+    private final double promptPricePerMillion;
+    private final double completionPricePerMillion;
+    private final ExecutorService executor;
+    private final long callTimeoutMs;
+
+    public OpenAICompatibleProvider(String name, String url, String model, String apiKey,
+                                    RestTemplate restTemplate, OpenAIRateLimiter rateLimiter,
+                                    double promptPricePerMillion, double completionPricePerMillion,
+                                    ExecutorService executor, long callTimeoutMs) {
+        this.name = name;
+        this.url = url;
+        this.model = model;
+        this.apiKey = apiKey;
+        this.restTemplate = restTemplate;
+        this.rateLimiter = rateLimiter;
+        this.promptPricePerMillion = promptPricePerMillion;
+        this.completionPricePerMillion = completionPricePerMillion;
+        this.executor = executor;
+        this.callTimeoutMs = callTimeoutMs;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public AICompletion complete(String systemPrompt, String userPrompt, long estimatedTokens) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (apiKey != null && !apiKey.isBlank()) {
+            headers.setBearerAuth(apiKey);
+        }
+
+        OpenAIChatRequest requestBody = new OpenAIChatRequest(
+                model,
+                List.of(
+                        new OpenAIMessage("system", systemPrompt),
+                        new OpenAIMessage("user", userPrompt)
+                ),
+                0.3,
+                Map.of("type", "json_object")
+        );
+        HttpEntity<OpenAIChatRequest> entity = new HttpEntity<>(requestBody, headers);
+
+        AtomicLong latencyMillis = new AtomicLong();
+        OpenAIResponse response = rateLimiter != null
+                ? rateLimiter.execute(estimatedTokens, () -> post(entity, latencyMillis))
+                : post(entity, latencyMillis);
+
+        if (response == null || response.getChoices() == null || response.getChoices().isEmpty()) {
+            throw new RuntimeException("Resposta vazia do provedor de IA " + name);
+        }
+        String content = response.getChoices().get(0).getMessage().getContent();
+        OpenAIUsage usage = response.getUsage();
+        // Sem bloco usage (alguns servidores self-hosted), fica a estimativa local
+        long promptTokens = usage != null && usage.getPromptTokens() != null
+                ? usage.getPromptTokens()
+                : estimatedTokens;
+        long completionTokens = usage != null && usage.getCompletionTokens() != null
+                ? usage.getCompletionTokens()
+                : TokenEstimator.estimate(content);
+        double cost = (promptTokens * promptPricePerMillion + completionTokens * completionPricePerMillion) / 1_000_000;
+        if (rateLimiter != null && usage != null && usage.getPromptTokens() != null && usage.getCompletionTokens() != null) {
+            rateLimiter.reconcileTokens(estimatedTokens, promptTokens + completionTokens);
+        }
+
+        return new AICompletion(name, model, content, promptTokens, completionTokens, cost, latencyMillis.get());
+    }
+
+    // Erros HTTP (inclusive o 429 que o rate limiter trata) saem do Future como a exceção original
+    private OpenAIResponse post(HttpEntity<OpenAIChatRequest> entity, AtomicLong latencyMillis) {
+        long started = System.nanoTime();
+        Future<OpenAIResponse> call = executor.submit(
+                () -> restTemplate.postForEntity(url, entity, OpenAIResponse.class).getBody());
+        try {
+            return call.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            throw new RuntimeException("Tempo limite excedido no provedor de IA " + name, e);
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrompido aguardando o provedor de IA " + name, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Falha no provedor de IA " + name, e.getCause());
+        } finally {
+            latencyMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+    }
+}
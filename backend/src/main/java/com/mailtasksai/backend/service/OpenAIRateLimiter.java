@@ -0,0 +1,208 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.util.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Governa todas as chamadas à OpenAI:
+// - token buckets de requisições por minuto (RPM) e tokens por minuto (TPM), com os limites da conta;
+// - pausa global quando a OpenAI devolve 429 com Retry-After;
+// - limite de concorrência adaptativo (AIMD): sobe devagar enquanto a latência está dentro do alvo,
+//   cai pela metade em um 429 e um pouco quando a latência passa do alvo.
+@Component
+@Slf4j
+public class OpenAIRateLimiter {
+
+    @Value("${ai.rate-limit.requests-per-minute:500}")
+    private long requestsPerMinute;
+
+    @Value("${ai.rate-limit.tokens-per-minute:200000}")
+    private long tokensPerMinute;
+
+    @Value("${ai.rate-limit.min-concurrency:2}")
+    private int minConcurrency;
+
+    @Value("${ai.rate-limit.max-concurrency:32}")
+    private int maxConcurrency;
+
+    @Value("${ai.rate-limit.initial-concurrency:8}")
+    private int initialConcurrency;
+
+    @Value("${ai.rate-limit.target-latency-ms:8000}")
+    private long targetLatencyMs;
+
+    @Value("${ai.rate-limit.default-retry-after-seconds:20}")
+    private long defaultRetryAfterSeconds;
+
+    // 429 com espera até este valor é retentado na hora; acima disso o e-mail volta para a fila durável
+    @Value("${ai.rate-limit.max-inline-wait-seconds:30}")
+    private long maxInlineWaitSeconds;
+
+    @Value("${ai.rate-limit.max-inline-retries:2}")
+    private int maxInlineRetries;
+
+    private TokenBucket requestBucket;
+    private TokenBucket tokenBucket;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private double concurrencyLimit;
+    private int inFlight;
+    private volatile long pausedUntilNanos;
+
+    @Autowired private MeterRegistry meterRegistry;
+
+    private Counter throttledResponses;
+
+    @PostConstruct
+    void init() {
+        requestBucket = new TokenBucket(requestsPerMinute);
+        tokenBucket = new TokenBucket(tokensPerMinute);
+        concurrencyLimit = Math.max(minConcurrency, Math.min(maxConcurrency, initialConcurrency));
+
+        throttledResponses = Counter.builder("ai.openai.throttled")
+                .description("Respostas 429 da OpenAI")
+                .register(meterRegistry);
+        Gauge.builder("ai.openai.concurrency.limit", this, OpenAIRateLimiter::getConcurrencyLimit)
+                .description("Limite adaptativo de chamadas simultâneas à OpenAI")
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(long estimatedTokens, Supplier<T> call) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return executeOnce(estimatedTokens, call);
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                throttledResponses.increment();
+                long retryAfter = retryAfterSeconds(e.getResponseHeaders());
+                pause(retryAfter);
+                if (attempt >= maxInlineRetries || retryAfter > maxInlineWaitSeconds) {
+                    throw new AIRateLimitException(retryAfter, e);
+                }
+                log.warn("OpenAI devolveu 429. Nova tentativa em {}s (limite de concorrência: {})",
+                        retryAfter, (int) concurrencyLimit);
+            }
+        }
+    }
+
+    // A reserva no TPM é feita pela estimativa; com o bloco usage da resposta ela é acertada pelo consumo real
+    public void reconcileTokens(long estimatedTokens, long actualTokens) {
+        tokenBucket.adjust(reservedTokens(estimatedTokens) - actualTokens);
+    }
+
+    public int getConcurrencyLimit() {
+        return (int) concurrencyLimit;
+    }
+
+    private <T> T executeOnce(long estimatedTokens, Supplier<T> call) {
+        try {
+            awaitPause();
+            acquireSlot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrompido aguardando limite da OpenAI", e);
+        }
+
+        // A espera nos buckets é limitação nossa: só a chamada conta como latência do provedor no AIMD
+        long started = 0;
+        boolean throttled = false;
+        try {
+            requestBucket.acquire(1);
+            tokenBucket.acquire(estimatedTokens);
+            started = System.nanoTime();
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrompido aguardando limite da OpenAI", e);
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            // Requisição recusada não consome a cota de tokens
+            throttled = true;
+            tokenBucket.adjust(reservedTokens(estimatedTokens));
+            throw e;
+        } finally {
+            long latencyMs = started > 0 ? Duration.ofNanos(System.nanoTime() - started).toMillis() : 0;
+            releaseSlot(throttled, latencyMs);
+        }
+    }
+
+    // O mesmo limite aplicado pelo TokenBucket.acquire
+    private long reservedTokens(long estimatedTokens) {
+        return Math.min(Math.max(estimatedTokens, 1), Math.max(1, tokensPerMinute));
+    }
+
+    private void awaitPause() throws InterruptedException {
+        long remaining;
+        while ((remaining = pausedUntilNanos - System.nanoTime()) > 0) {
+            Thread.sleep(Math.max(1, remaining / 1_000_000));
+        }
+    }
+
+    private void pause(long seconds) {
+        long until = System.nanoTime() + seconds * 1_000_000_000L;
+        if (until > pausedUntilNanos) {
+            pausedUntilNanos = until;
+        }
+    }
+
+    private void acquireSlot() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) concurrencyLimit) {
+                slotFreed.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseSlot(boolean throttled, long latencyMs) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (throttled) {
+                concurrencyLimit = Math.max(minConcurrency, concurrencyLimit / 2);
+            } else if (latencyMs > targetLatencyMs) {
+                concurrencyLimit = Math.max(minConcurrency, concurrencyLimit * 0.9);
+            } else {
+                concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Retry-After pode vir em segundos ou como data HTTP
+    private long retryAfterSeconds(HttpHeaders headers) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value == null || value.isBlank()) {
+            return defaultRetryAfterSeconds;
+        }
+        try {
+            return Math.max(1, (long) Math.ceil(Double.parseDouble(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(1, Duration.between(ZonedDateTime.now(at.getZone()), at).toSeconds());
+            } catch (Exception ignored) {
+                return defaultRetryAfterSeconds;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.PipelineStageStats;
+import com.mailtasksai.backend.util.RateMeter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Estágio do pipeline de ingestão: fila limitada + workers em virtual threads.
+// Cada worker retira até batchSize itens de uma vez e entrega ao handler, que decide o destino
+// de cada item (próximo estágio, done ou fail). Com lingerMillis > 0 o worker espera até esse tempo
+// pelo lote completo, para que e-mails chegando aos poucos ainda sejam agrupados.
+@Slf4j
+class PipelineStage {
+
+    private final String name;
+    private final BlockingQueue<IngestionItem> queue;
+    private final int capacity;
+    private final int workers;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final Consumer<List<IngestionItem>> handler;
+
+    private final LongAdder processed = new LongAdder();
+    private final RateMeter throughput = new RateMeter();
+    private final List<Thread> threads = new ArrayList<>();
+
+    PipelineStage(String name, int capacity, int workers, int batchSize, Consumer<List<IngestionItem>> handler) {
+        this(name, capacity, workers, batchSize, 0, handler);
+    }
+
+    PipelineStage(String name, int capacity, int workers, int batchSize, long lingerMillis,
+                  Consumer<List<IngestionItem>> handler) {
+        this.name = name;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.handler = handler;
+    }
+
+    void start() {
+        for (int i = 0; i < workers; i++) {
+            threads.add(Thread.ofVirtual().name("ingestion-" + name + "-" + i).start(this::work));
+        }
+    }
+
+    void stop() {
+        threads.forEach(Thread::interrupt);
+    }
+
+    // Bloqueia enquanto a fila estiver cheia
+    void put(IngestionItem item) throws InterruptedException {
+        item.setStage(this);
+        queue.put(item);
+    }
+
+    PipelineStageStats stats() {
+        return new PipelineStageStats(name, queue.size(), capacity, workers, processed.sum(), throughput.perSecond());
+    }
+
+    private void work() {
+        List<IngestionItem> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                linger(batch);
+                handler.accept(batch);
+                processed.add(batch.size());
+                throughput.mark(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Erro inesperado no estágio {} do pipeline", name, e);
+                // Só os itens que o handler não encaminhou; os já concluídos são ignorados pelo próprio item
+                batch.stream().filter(item -> item.getStage() == this).forEach(item -> item.fail(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void linger(List<IngestionItem> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return;
+            IngestionItem item = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (item == null) return;
+            batch.add(item);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.model.MailboxSyncState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Calcula o intervalo de polling de cada empresa a partir da taxa de chegada de e-mails.
+// Caixas movimentadas são consultadas com mais frequência; caixas paradas vão se espaçando
+// (no máximo dobrando a cada ciclo) até o limite superior.
+@Component
+public class PollingCadence {
+
+    @Value("${ingestion.polling.min-interval-seconds:15}")
+    private int minIntervalSeconds;
+
+    @Value("${ingestion.polling.max-interval-seconds:600}")
+    private int maxIntervalSeconds;
+
+    @Value("${ingestion.polling.default-interval-seconds:60}")
+    private int defaultIntervalSeconds;
+
+    // Quantas mensagens novas queremos encontrar, em média, a cada consulta
+    @Value("${ingestion.polling.target-messages-per-poll:2}")
+    private double targetMessagesPerPoll;
+
+    @Value("${ingestion.polling.ewma-alpha:0.3}")
+    private double ewmaAlpha;
+
+    public void recordPoll(MailboxSyncState state, int newMessages, LocalDateTime now) {
+        Double rate = state.getArrivalRatePerHour();
+        if (state.getLastSyncedAt() != null) {
+            // Piso de 1 minuto para que dois ciclos muito próximos não gerem picos de taxa
+            double elapsedHours = Math.max(Duration.between(state.getLastSyncedAt(), now).toSeconds(), 60) / 3600.0;
+            double observed = newMessages / elapsedHours;
+            rate = rate == null ? observed : ewmaAlpha * observed + (1 - ewmaAlpha) * rate;
+        }
+
+        int previous = currentInterval(state);
+        int interval;
+        if (rate == null) {
+            interval = defaultIntervalSeconds;
+        } else if (rate <= 0) {
+            interval = maxIntervalSeconds;
+        } else {
+            interval = (int) Math.round(targetMessagesPerPoll * 3600 / rate);
+        }
+        interval = clamp(Math.min(interval, previous * 2));
+
+        state.setArrivalRatePerHour(rate);
+        state.setPollIntervalSeconds(interval);
+        state.setNextPollAt(now.plusSeconds(interval));
+    }
+
+    // Falha no ciclo (token inválido, erro no Graph): mantém o intervalo atual para não insistir a cada tick
+    public void recordFailure(MailboxSyncState state, LocalDateTime now) {
+        int interval = currentInterval(state);
+        state.setPollIntervalSeconds(interval);
+        state.setNextPollAt(now.plusSeconds(interval));
+    }
+
+    private int currentInterval(MailboxSyncState state) {
+        return state.getPollIntervalSeconds() != null
+                ? clamp(state.getPollIntervalSeconds())
+                : clamp(defaultIntervalSeconds);
+    }
+
+    private int clamp(int seconds) {
+        return Math.max(minIntervalSeconds, Math.min(maxIntervalSeconds, seconds));
+    }
+}
@@ -0,0 +1,86 @@
+package com.mailtasksai.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mailtasksai.backend.model.UrgenciaEnum;
+import com.mailtasksai.backend.util.TokenEstimator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Provedor determinístico para testes de carga: não sai da JVM e responde sempre o mesmo resultado
+// para o mesmo prompt, no formato individual ou em lote, com uma latência simulada configurável.
+public class StubAIProvider implements AIProvider {
+
+    private static final Pattern MESSAGE_MARKER = Pattern.compile("### message_id: (\\d+)");
+    private static final Pattern SUBJECT_LINE = Pattern.compile("Assunto: (.*)");
+    private static final String[] CATEGORIES = {"FINANCEIRO", "OPERACIONAL", "COMERCIAL", "ADMINISTRATIVO"};
+
+    private final ObjectMapper objectMapper;
+    private final long latencyMs;
+
+    public StubAIProvider(ObjectMapper objectMapper, long latencyMs) {
+        this.objectMapper = objectMapper;
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public String getName() {
+        return "stub";
+    }
+
+    @Override
+    public AICompletion complete(String systemPrompt, String userPrompt, long estimatedTokens) {
+        long started = System.nanoTime();
+        simulateLatency();
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        Matcher markers = MESSAGE_MARKER.matcher(userPrompt);
+        if (!markers.find()) {
+            return completion(resultFor(userPrompt).toString(), estimatedTokens, latencyMillis);
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode results = response.putArray("resultados");
+        int start = markers.start();
+        String id = markers.group(1);
+        while (true) {
+            boolean more = markers.find();
+            String section = userPrompt.substring(start, more ? markers.start() : userPrompt.length());
+            results.add(resultFor(section).put("message_id", id));
+            if (!more) break;
+            start = markers.start();
+            id = markers.group(1);
+        }
+        return completion(response.toString(), estimatedTokens, latencyMillis);
+    }
+
+    private AICompletion completion(String content, long estimatedTokens, long latencyMillis) {
+        return new AICompletion(getName(), "stub", content, estimatedTokens, TokenEstimator.estimate(content), 0, latencyMillis);
+    }
+
+    private ObjectNode resultFor(String prompt) {
+        int hash = prompt.hashCode() & Integer.MAX_VALUE;
+        Matcher subject = SUBJECT_LINE.matcher(prompt);
+        String summary = subject.find() ? subject.group(1).trim() : "Tarefa";
+
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("resumo_tarefa", summary.length() > 300 ? summary.substring(0, 300) : summary);
+        result.put("urgencia", UrgenciaEnum.values()[hash % UrgenciaEnum.values().length].name());
+        result.put("categoria_sugerida", CATEGORIES[(hash / 7) % CATEGORIES.length]);
+        result.put("confidence", 0.5);
+        return result;
+    }
+
+    private void simulateLatency() {
+        if (latencyMs <= 0) return;
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrompido no provedor stub", e);
+        }
+    }
+}
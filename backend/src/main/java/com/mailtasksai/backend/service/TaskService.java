@@ -6,10 +6,12 @@ import com.mailtasksai.backend.dto.TaskStats;
 import com.mailtasksai.backend.model.TaskStatus;
 import com.mailtasksai.backend.model.*;
 import com.mailtasksai.backend.repository.CompanyRepository;
+import com.mailtasksai.backend.repository.TaskMessageRepository;
 import com.mailtasksai.backend.repository.TaskRepository;
 import com.mailtasksai.backend.repository.TaskSpecifications;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -27,6 +29,9 @@ public class TaskService {
     @Autowired
     private TaskRepository taskRepository;
 
+    @Autowired
+    private TaskMessageRepository taskMessageRepository;
+
     @Autowired
     private CompanyRepository companyRepository;
 
@@ -36,6 +41,10 @@ public class TaskService {
     @Autowired
     private AuthService authService;
 
+    // true: busca textual do Postgres (tsvector + GIN, por relevância); false: LIKE em resumo e assunto
+    @Value("${tasks.search.full-text:true}")
+    private boolean fullTextSearch;
+
     public Page<Task> getTasksByCompany(Long companyId, Pageable pageable) {
         return taskRepository.findByCompanyId(companyId, pageable);
     }
@@ -152,12 +161,20 @@ public class TaskService {
                 .orElseThrow(() -> new RuntimeException("Tarefa não encontrada com ID: " + taskId));
     }
 
+    // Lembretes e cópias do mesmo pedido que foram anexados à tarefa em vez de virarem tarefas novas
+    public List<TaskMessage> getTaskMessages(Long companyId, Long taskId) {
+        if (!taskRepository.existsByIdAndCompanyId(taskId, companyId)) {
+            throw new RuntimeException("Tarefa não encontrada com ID: " + taskId);
+        }
+        return taskMessageRepository.findByTask(companyId, taskId);
+    }
+
     public Page<Task> searchTasks(Long companyId, String query, UrgenciaEnum urgencia,
                                   String categoria, TaskStatus status,
                                   LocalDate dateFrom, LocalDate dateTo, Pageable pageable) {
 
         Specification<Task> spec = TaskSpecifications.withCompanyId(companyId)
-                .and(TaskSpecifications.withTextSearch(query))
+                .and(fullTextSearch ? TaskSpecifications.withFullTextSearch(query) : TaskSpecifications.withTextSearch(query))
                 .and(TaskSpecifications.withUrgencia(urgencia))
                 .and(TaskSpecifications.withCategoria(categoria))
                 .and(TaskSpecifications.withStatus(status))
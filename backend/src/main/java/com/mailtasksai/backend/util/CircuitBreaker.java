@@ -0,0 +1,69 @@
+package com.mailtasksai.backend.util;
+
+// Circuit breaker simples por contagem de falhas consecutivas. Chamadas lentas (acima de
+// slowCallMillis) contam como falha. Aberto, recusa chamadas até openMillis passar; depois deixa
+// passar uma chamada de teste (meio-aberto) que fecha o circuito se der certo ou o reabre se falhar.
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, long slowCallMillis, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probeInFlight) yield false;
+                probeInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess(long elapsedMillis) {
+        if (slowCallMillis > 0 && elapsedMillis > slowCallMillis) {
+            onFailure();
+            return;
+        }
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    // Chamada que não diz nada sobre a saúde do provedor (ex.: recusada por limite de requisições):
+    // não conta como sucesso nem falha, só libera a vaga da chamada de teste
+    public synchronized void release() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
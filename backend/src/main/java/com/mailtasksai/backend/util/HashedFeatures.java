@@ -0,0 +1,63 @@
+package com.mailtasksai.backend.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Extrai features de texto para o classificador local: unigramas e bigramas de palavras
+// normalizadas (minúsculas, sem acento), cada um mapeado por hash para um de "buckets" índices.
+public final class HashedFeatures {
+
+    private HashedFeatures() {
+    }
+
+    public static int[] extract(String text, int buckets) {
+        if (text == null || text.isEmpty()) return new int[0];
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        int[] features = new int[16];
+        int count = 0;
+        long previous = 0;
+        boolean hasPrevious = false;
+
+        int i = 0;
+        int length = normalized.length();
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(normalized.charAt(i))) i++;
+            long hash = 0xcbf29ce484222325L;
+            int tokenLength = 0;
+            while (i < length) {
+                char c = normalized.charAt(i);
+                if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                    i++;
+                    continue;
+                }
+                if (!Character.isLetterOrDigit(c)) break;
+                hash = (hash ^ c) * 0x100000001b3L;
+                tokenLength++;
+                i++;
+            }
+            if (tokenLength < 2) {
+                hasPrevious = false;
+                continue;
+            }
+
+            if (count + 2 > features.length) {
+                features = Arrays.copyOf(features, features.length * 2);
+            }
+            features[count++] = bucket(hash, buckets);
+            if (hasPrevious) {
+                features[count++] = bucket(previous * 31 + hash, buckets);
+            }
+            previous = hash;
+            hasPrevious = true;
+        }
+        return Arrays.copyOf(features, count);
+    }
+
+    private static int bucket(long hash, int buckets) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) buckets);
+    }
+}
@@ -0,0 +1,348 @@
+package com.mailtasksai.backend.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Converte o HTML dos e-mails em texto numa única passada, sem regex e sem cópias intermediárias.
+// Mantém a semântica da limpeza antiga: <br> vira quebra de linha, <p> separa parágrafos,
+// <div>/<ul>/<ol> quebram linha, <li> vira "• ", as demais tags somem e as entidades numéricas
+// e nomeadas (Latin-1 e pontuação tipográfica) são decodificadas. Espaços em sequência viram um só e nunca há mais de uma linha em branco seguida.
+public final class HtmlToTextConverter {
+
+    private static final int MAX_CONSECUTIVE_NEWLINES = 2;
+
+    // Latin-1 (U+00A0 a U+00FF) na ordem dos códigos, como na tabela do HTML 4
+    private static final String[] LATIN1_ENTITIES = {
+            "nbsp", "iexcl", "cent", "pound", "curren", "yen", "brvbar", "sect",
+            "uml", "copy", "ordf", "laquo", "not", "shy", "reg", "macr",
+            "deg", "plusmn", "sup2", "sup3", "acute", "micro", "para", "middot",
+            "cedil", "sup1", "ordm", "raquo", "frac14", "frac12", "frac34", "iquest",
+            "Agrave", "Aacute", "Acirc", "Atilde", "Auml", "Aring", "AElig", "Ccedil",
+            "Egrave", "Eacute", "Ecirc", "Euml", "Igrave", "Iacute", "Icirc", "Iuml",
+            "ETH", "Ntilde", "Ograve", "Oacute", "Ocirc", "Otilde", "Ouml", "times",
+            "Oslash", "Ugrave", "Uacute", "Ucirc", "Uuml", "Yacute", "THORN", "szlig",
+            "agrave", "aacute", "acirc", "atilde", "auml", "aring", "aelig", "ccedil",
+            "egrave", "eacute", "ecirc", "euml", "igrave", "iacute", "icirc", "iuml",
+            "eth", "ntilde", "ograve", "oacute", "ocirc", "otilde", "ouml", "divide",
+            "oslash", "ugrave", "uacute", "ucirc", "uuml", "yacute", "thorn", "yuml"
+    };
+
+    // Latin-1 mais a pontuação tipográfica que o Outlook e o Word colocam nos e-mails
+    private static final Map<String, Integer> NAMED_ENTITIES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < LATIN1_ENTITIES.length; i++) {
+            NAMED_ENTITIES.put(LATIN1_ENTITIES[i], 0xA0 + i);
+        }
+        NAMED_ENTITIES.putAll(Map.ofEntries(
+                Map.entry("OElig", 0x152), Map.entry("oelig", 0x153),
+                Map.entry("Scaron", 0x160), Map.entry("scaron", 0x161),
+                Map.entry("Yuml", 0x178), Map.entry("fnof", 0x192),
+                Map.entry("circ", 0x2C6), Map.entry("tilde", 0x2DC),
+                Map.entry("ensp", 0x2002), Map.entry("emsp", 0x2003), Map.entry("thinsp", 0x2009),
+                Map.entry("zwnj", 0x200C), Map.entry("zwj", 0x200D),
+                Map.entry("ndash", 0x2013), Map.entry("mdash", 0x2014),
+                Map.entry("lsquo", 0x2018), Map.entry("rsquo", 0x2019), Map.entry("sbquo", 0x201A),
+                Map.entry("ldquo", 0x201C), Map.entry("rdquo", 0x201D), Map.entry("bdquo", 0x201E),
+                Map.entry("dagger", 0x2020), Map.entry("Dagger", 0x2021),
+                Map.entry("bull", 0x2022), Map.entry("hellip", 0x2026), Map.entry("permil", 0x2030),
+                Map.entry("prime", 0x2032), Map.entry("Prime", 0x2033),
+                Map.entry("lsaquo", 0x2039), Map.entry("rsaquo", 0x203A),
+                Map.entry("euro", 0x20AC), Map.entry("trade", 0x2122)
+        ));
+    }
+
+    private HtmlToTextConverter() {
+    }
+
+    // Texto com quebras de linha, para exibição no painel
+    public static String toText(String html) {
+        return convert(html, true);
+    }
+
+    // Tudo numa linha só, para montar prompts
+    public static String toSingleLine(String html) {
+        return convert(html, false);
+    }
+
+    // Corpos que o Graph já devolveu em texto (Prefer: outlook.body-content-type="text"):
+    // só aplica o mesmo colapso de espaços e de linhas em branco, sem interpretar tags ou entidades
+    public static String normalizeText(String text) {
+        return normalizePlain(text, true);
+    }
+
+    public static String normalizeSingleLine(String text) {
+        return normalizePlain(text, false);
+    }
+
+    private static String normalizePlain(String text, boolean keepLines) {
+        if (text == null || text.isEmpty()) return "";
+
+        Output out = new Output(text.length(), keepLines);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                out.newline(1);
+            } else if (Character.isWhitespace(c)) {
+                out.space();
+            } else {
+                out.append(c);
+            }
+        }
+        return out.finish();
+    }
+
+    private static String convert(String html, boolean keepLines) {
+        if (html == null || html.isEmpty()) return "";
+
+        Output out = new Output(html.length(), keepLines);
+        int length = html.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                int next = consumeTag(html, i, out);
+                if (next > i) {
+                    i = next;
+                    continue;
+                }
+                out.append(c);
+                i++;
+            } else if (c == '&') {
+                i = consumeEntity(html, i, out);
+            } else if (Character.isWhitespace(c)) {
+                out.space();
+                i++;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+
+        return out.finish();
+    }
+
+    // Retorna o índice logo após a tag, ou "start" quando o '<' não abre uma tag
+    private static int consumeTag(String html, int start, Output out) {
+        int length = html.length();
+        if (start + 1 >= length) return start;
+
+        char first = html.charAt(start + 1);
+
+        if (html.startsWith("<!--", start)) {
+            int end = html.indexOf("-->", start + 4);
+            return end < 0 ? length : end + 3;
+        }
+        if (first == '!' || first == '?') {
+            int end = html.indexOf('>', start);
+            return end < 0 ? length : end + 1;
+        }
+
+        boolean closing = first == '/';
+        int nameStart = closing ? start + 2 : start + 1;
+        if (nameStart >= length || !isAsciiLetter(html.charAt(nameStart))) return start;
+
+        int nameEnd = nameStart;
+        while (nameEnd < length && isTagNameChar(html.charAt(nameEnd))) nameEnd++;
+
+        int end = findTagEnd(html, nameEnd);
+
+        if (!closing && isRawTextTag(html, nameStart, nameEnd)) {
+            return skipRawText(html, end, nameStart, nameEnd);
+        }
+
+        applyTag(html, nameStart, nameEnd, closing, out);
+        return end;
+    }
+
+    // Procura o '>' que fecha a tag ignorando os que aparecem dentro de atributos entre aspas
+    private static int findTagEnd(String html, int from) {
+        char quote = 0;
+        for (int i = from; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return html.length();
+    }
+
+    private static void applyTag(String html, int nameStart, int nameEnd, boolean closing, Output out) {
+        if (is(html, nameStart, nameEnd, "br")) {
+            out.newline(1);
+        } else if (is(html, nameStart, nameEnd, "p")) {
+            out.newline(2);
+        } else if (is(html, nameStart, nameEnd, "div") || is(html, nameStart, nameEnd, "ul")
+                || is(html, nameStart, nameEnd, "ol") || is(html, nameStart, nameEnd, "tr")
+                || isHeading(html, nameStart, nameEnd)) {
+            out.newline(1);
+        } else if (is(html, nameStart, nameEnd, "li")) {
+            if (!closing) {
+                out.newline(1);
+                out.append('•');
+                out.space();
+            }
+        } else if (is(html, nameStart, nameEnd, "td") || is(html, nameStart, nameEnd, "th")) {
+            out.space();
+        }
+    }
+
+    private static boolean isRawTextTag(String html, int nameStart, int nameEnd) {
+        return is(html, nameStart, nameEnd, "style") || is(html, nameStart, nameEnd, "script")
+                || is(html, nameStart, nameEnd, "head") || is(html, nameStart, nameEnd, "title");
+    }
+
+    // Pula o conteúdo de <style>, <script>, <head> e <title> até a tag de fechamento correspondente
+    private static int skipRawText(String html, int from, int nameStart, int nameEnd) {
+        int nameLength = nameEnd - nameStart;
+        int i = from;
+        while ((i = html.indexOf("</", i)) >= 0) {
+            if (html.regionMatches(true, i + 2, html, nameStart, nameLength)) {
+                return findTagEnd(html, i + 2 + nameLength);
+            }
+            i += 2;
+        }
+        return html.length();
+    }
+
+    private static int consumeEntity(String html, int start, Output out) {
+        int semicolon = html.indexOf(';', start + 1);
+        if (semicolon < 0 || semicolon - start > 10) {
+            out.append('&');
+            return start + 1;
+        }
+
+        int nameStart = start + 1;
+        int codePoint;
+        if (is(html, nameStart, semicolon, "nbsp")) {
+            codePoint = 0xA0;
+        } else if (is(html, nameStart, semicolon, "amp")) {
+            codePoint = '&';
+        } else if (is(html, nameStart, semicolon, "lt")) {
+            codePoint = '<';
+        } else if (is(html, nameStart, semicolon, "gt")) {
+            codePoint = '>';
+        } else if (is(html, nameStart, semicolon, "quot")) {
+            codePoint = '"';
+        } else if (is(html, nameStart, semicolon, "apos")) {
+            codePoint = '\'';
+        } else if (html.charAt(nameStart) == '#') {
+            codePoint = parseCodePoint(html, nameStart + 1, semicolon);
+        } else {
+            // Nomes de entidade diferenciam maiúsculas: &Atilde; é Ã, &atilde; é ã
+            codePoint = NAMED_ENTITIES.getOrDefault(html.substring(nameStart, semicolon), -1);
+        }
+        if (codePoint < 0) {
+            out.append('&');
+            return start + 1;
+        }
+
+        if (codePoint == 0xA0 || Character.isWhitespace(codePoint)) {
+            out.space();
+        } else if (codePoint != 0xAD && codePoint != 0x200C && codePoint != 0x200D) {
+            // Hífen opcional (&shy;) e zero-width (&zwnj;/&zwj;) não aparecem no texto
+            out.appendCodePoint(codePoint);
+        }
+        return semicolon + 1;
+    }
+
+    private static int parseCodePoint(String html, int from, int to) {
+        int radix = 10;
+        if (from < to && (html.charAt(from) == 'x' || html.charAt(from) == 'X')) {
+            radix = 16;
+            from++;
+        }
+        if (from >= to) return -1;
+
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(html.charAt(i), radix);
+            if (digit < 0) return -1;
+            value = value * radix + digit;
+            if (value > Character.MAX_CODE_POINT) return -1;
+        }
+        return value;
+    }
+
+    private static boolean is(String html, int start, int end, String name) {
+        return end - start == name.length() && html.regionMatches(true, start, name, 0, name.length());
+    }
+
+    private static boolean isHeading(String html, int start, int end) {
+        return end - start == 2
+                && (html.charAt(start) == 'h' || html.charAt(start) == 'H')
+                && html.charAt(start + 1) >= '1' && html.charAt(start + 1) <= '6';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isTagNameChar(char c) {
+        return isAsciiLetter(c) || (c >= '0' && c <= '9') || c == ':' || c == '-';
+    }
+
+    // Buffer de saída que aplica o colapso de espaços e o limite de linhas em branco enquanto escreve
+    private static final class Output {
+        private final StringBuilder text;
+        private final boolean keepLines;
+        private boolean pendingSpace;
+        private int trailingNewlines;
+
+        Output(int capacity, boolean keepLines) {
+            this.text = new StringBuilder(capacity);
+            this.keepLines = keepLines;
+        }
+
+        void append(char c) {
+            flushSpace();
+            text.append(c);
+            trailingNewlines = 0;
+        }
+
+        void appendCodePoint(int codePoint) {
+            flushSpace();
+            text.appendCodePoint(codePoint);
+            trailingNewlines = 0;
+        }
+
+        void space() {
+            if (text.length() > 0 && trailingNewlines == 0) {
+                pendingSpace = true;
+            }
+        }
+
+        void newline(int count) {
+            if (!keepLines) {
+                space();
+                return;
+            }
+            pendingSpace = false;
+            if (text.length() == 0) return;
+            int toAppend = Math.min(count, MAX_CONSECUTIVE_NEWLINES - trailingNewlines);
+            for (int i = 0; i < toAppend; i++) {
+                text.append('\n');
+                trailingNewlines++;
+            }
+        }
+
+        String finish() {
+            int end = text.length();
+            while (end > 0 && text.charAt(end - 1) == '\n') end--;
+            text.setLength(end);
+            return text.toString();
+        }
+
+        private void flushSpace() {
+            if (pendingSpace) {
+                text.append(' ');
+                pendingSpace = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.mailtasksai.backend.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Naive Bayes multinomial sobre features com hash (ver HashedFeatures), com suavização de Laplace.
+// Treino incremental: cada exemplo só soma contadores. Thread-safe: predições concorrentes,
+// treino exclusivo.
+public class NaiveBayesClassifier {
+
+    private final int buckets;
+    private final Map<String, ClassCounts> classes = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalDocuments;
+
+    public record Prediction(String label, double probability, long labelDocuments) {}
+
+    private static final class ClassCounts {
+        private final int[] featureCounts;
+        private long documents;
+        private long features;
+
+        private ClassCounts(int buckets) {
+            this.featureCounts = new int[buckets];
+        }
+    }
+
+    public NaiveBayesClassifier(int buckets) {
+        this.buckets = buckets;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public long getTotalDocuments() {
+        return totalDocuments;
+    }
+
+    public void train(int[] features, String label) {
+        lock.writeLock().lock();
+        try {
+            ClassCounts counts = classes.computeIfAbsent(label, key -> new ClassCounts(buckets));
+            counts.documents++;
+            for (int feature : features) {
+                counts.featureCounts[feature]++;
+            }
+            counts.features += features.length;
+            totalDocuments++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Probabilidade a posteriori da classe mais provável (softmax dos log-scores)
+    public Prediction predict(int[] features) {
+        lock.readLock().lock();
+        try {
+            if (classes.isEmpty() || totalDocuments == 0) return null;
+
+            String bestLabel = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            Map<String, Double> scores = new HashMap<>(classes.size() * 2);
+
+            for (Map.Entry<String, ClassCounts> entry : classes.entrySet()) {
+                ClassCounts counts = entry.getValue();
+                double score = Math.log((double) counts.documents / totalDocuments);
+                double denominator = Math.log(counts.features + (double) buckets);
+                for (int feature : features) {
+                    score += Math.log(counts.featureCounts[feature] + 1.0) - denominator;
+                }
+                scores.put(entry.getKey(), score);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestLabel = entry.getKey();
+                }
+            }
+
+            double sum = 0;
+            for (double score : scores.values()) {
+                sum += Math.exp(score - bestScore);
+            }
+            return new Prediction(bestLabel, 1.0 / sum, classes.get(bestLabel).documents);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.mailtasksai.backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Reduz o corpo do e-mail ao que interessa para a IA antes de montar o prompt:
+// corta o histórico citado (linhas "> ...", cabeçalhos "De:/From:", "Em ..., fulano escreveu:",
+// "-----Mensagem original-----"), a assinatura e os rodapés legais, e depois encaixa o que
+// sobrou num orçamento de tokens, linha a linha. Recebe texto com quebras de linha (HtmlToTextConverter#toText).
+public final class PromptCompactor {
+
+    private static final Pattern HEADER_LINE = Pattern.compile(
+            "^\\*?(de|from|enviado|enviada|sent|para|to|cc|assunto|subject|data|date)\\*?\\s*:.*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern REPLY_INTRO = Pattern.compile(
+            "^(em|on)\\s.{4,200}(escreveu|wrote)\\s*:?\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORIGINAL_MESSAGE = Pattern.compile(
+            "^-{2,}\\s*(mensagem original|original message|mensagem encaminhada|forwarded message)\\s*-{2,}.*|^_{10,}\\s*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern SIGNATURE_DELIMITER = Pattern.compile("^--\\s*$");
+    private static final Pattern CLOSING = Pattern.compile(
+            "^(atenciosamente|att|att\\.|abs|abs\\.|abraços|abraço|cordialmente|obrigad[oa]|grato|grata|"
+                    + "regards|best regards|kind regards|thanks|best)[,.!]?\\s*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final String[] FOOTER_MARKERS = {
+            "esta mensagem", "este e-mail", "este email", "aviso legal", "confidencial", "confidential",
+            "disclaimer", "antes de imprimir", "consider the environment", "this e-mail", "this email",
+            "enviado do meu", "sent from my"
+    };
+
+    // Abaixo disto a parte nova é considerada vazia (ex.: encaminhamento sem comentário)
+    private static final int MIN_OWN_CONTENT_CHARS = 20;
+
+    private PromptCompactor() {
+    }
+
+    public static String compact(String text, int tokenBudget) {
+        if (text == null || text.isBlank()) return "";
+
+        List<String> lines = text.lines().toList();
+        int quoteStart = findQuoteStart(lines);
+        List<String> own = lines.subList(0, quoteStart);
+
+        // Encaminhamento sem comentário: a mensagem que importa é a citada
+        if (quoteStart < lines.size() && contentLength(own) < MIN_OWN_CONTENT_CHARS) {
+            own = stripQuotedHeader(lines.subList(quoteStart, lines.size()));
+        }
+
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < own.size(); i++) {
+            String line = own.get(i).strip();
+            if (line.startsWith(">")) continue;
+            if (SIGNATURE_DELIMITER.matcher(line).matches()) break;
+            if (CLOSING.matcher(line).matches() && i >= own.size() / 3) break;
+            if (isLegalFooter(line)) continue;
+            kept.add(line);
+        }
+
+        return fitToBudget(kept, tokenBudget);
+    }
+
+    private static int findQuoteStart(List<String> lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (ORIGINAL_MESSAGE.matcher(line).matches() || REPLY_INTRO.matcher(line).matches()) {
+                return i;
+            }
+            // Cabeçalho do Outlook: "De:" seguido de "Enviado:/Para:/Assunto:" logo abaixo
+            if (HEADER_LINE.matcher(line).matches() && isHeaderBlock(lines, i)) {
+                return i;
+            }
+        }
+        return lines.size();
+    }
+
+    private static boolean isHeaderBlock(List<String> lines, int start) {
+        int headers = 0;
+        for (int i = start; i < Math.min(lines.size(), start + 5); i++) {
+            if (HEADER_LINE.matcher(lines.get(i).strip()).matches()) headers++;
+        }
+        return headers >= 2;
+    }
+
+    private static List<String> stripQuotedHeader(List<String> quoted) {
+        int i = 0;
+        while (i < quoted.size()) {
+            String line = quoted.get(i).strip();
+            if (line.isEmpty() || HEADER_LINE.matcher(line).matches()
+                    || ORIGINAL_MESSAGE.matcher(line).matches() || REPLY_INTRO.matcher(line).matches()) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        List<String> body = quoted.subList(i, quoted.size());
+        // O próprio encaminhamento pode conter outra conversa citada
+        return body.subList(0, findQuoteStart(body));
+    }
+
+    private static boolean isLegalFooter(String line) {
+        if (line.length() < 40) return false;
+        String lower = line.toLowerCase(Locale.ROOT);
+        for (String marker : FOOTER_MARKERS) {
+            if (lower.contains(marker)) return true;
+        }
+        return false;
+    }
+
+    private static int contentLength(List<String> lines) {
+        int length = 0;
+        for (String line : lines) {
+            if (!line.strip().startsWith(">")) length += line.strip().length();
+        }
+        return length;
+    }
+
+    // Mantém as linhas na ordem até esgotar o orçamento; a última é cortada em limite de palavra
+    private static String fitToBudget(List<String> lines, int tokenBudget) {
+        StringBuilder out = new StringBuilder();
+        int used = 0;
+        boolean previousBlank = true;
+
+        for (String line : lines) {
+            if (line.isEmpty()) {
+                if (!previousBlank) out.append('\n');
+                previousBlank = true;
+                continue;
+            }
+
+            int cost = TokenEstimator.estimate(line) + 1;
+            if (used + cost > tokenBudget) {
+                String partial = truncateToTokens(line, tokenBudget - used);
+                if (!partial.isEmpty()) {
+                    out.append(partial);
+                }
+                out.append("...");
+                return out.toString().strip();
+            }
+            out.append(line).append('\n');
+            used += cost;
+            previousBlank = false;
+        }
+        return out.toString().strip();
+    }
+
+    private static String truncateToTokens(String line, int tokens) {
+        if (tokens <= 0) return "";
+        String[] words = line.split(" ");
+        StringBuilder out = new StringBuilder();
+        int used = 0;
+        for (String word : words) {
+            int cost = TokenEstimator.estimate(word);
+            if (used + cost > tokens) break;
+            if (!out.isEmpty()) out.append(' ');
+            out.append(word);
+            used += cost;
+        }
+        return out.toString();
+    }
+}
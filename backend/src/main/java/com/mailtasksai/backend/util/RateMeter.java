@@ -0,0 +1,34 @@
+package com.mailtasksai.backend.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Contador de eventos por segundo numa janela deslizante de 60 segundos (um balde por segundo)
+public class RateMeter {
+
+    private static final int WINDOW_SECONDS = 60;
+
+    private final AtomicLongArray counts = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray seconds = new AtomicLongArray(WINDOW_SECONDS);
+
+    public void mark(long events) {
+        long now = System.currentTimeMillis() / 1000;
+        int bucket = (int) (now % WINDOW_SECONDS);
+
+        long bucketSecond = seconds.get(bucket);
+        if (bucketSecond != now && seconds.compareAndSet(bucket, bucketSecond, now)) {
+            counts.set(bucket, 0);
+        }
+        counts.addAndGet(bucket, events);
+    }
+
+    public double perSecond() {
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int bucket = 0; bucket < WINDOW_SECONDS; bucket++) {
+            if (now - seconds.get(bucket) < WINDOW_SECONDS) {
+                total += counts.get(bucket);
+            }
+        }
+        return (double) total / WINDOW_SECONDS;
+    }
+}
@@ -0,0 +1,100 @@
+package com.mailtasksai.backend.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+// Impressão digital de 64 bits para detectar e-mails quase idênticos (Charikar): textos parecidos
+// geram fingerprints a poucos bits de distância. As features são trigramas de palavras normalizadas
+// (minúsculas, sem acento), para a ordem das palavras contar. Trigramas com números pesam mais:
+// dois pedidos do mesmo modelo com cargas ou datas diferentes não devem ser tratados como o mesmo.
+public final class SimHash {
+
+    public static final int BITS = 64;
+
+    private static final int SHINGLE_SIZE = 3;
+    private static final int NUMERIC_WEIGHT = 4;
+
+    private SimHash() {
+    }
+
+    // Null quando o texto tem menos de "minTokens" palavras: textos curtos ("ok", "obrigado")
+    // ficam parecidos demais entre si para a comparação significar alguma coisa
+    public static Long compute(String text, int minTokens) {
+        if (text == null || text.isEmpty()) return null;
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        int[] weights = new int[BITS];
+        long[] window = new long[SHINGLE_SIZE];
+        boolean[] numeric = new boolean[SHINGLE_SIZE];
+        int tokens = 0;
+
+        int i = 0;
+        int length = normalized.length();
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(normalized.charAt(i))) i++;
+            long hash = 0xcbf29ce484222325L;
+            int tokenLength = 0;
+            boolean hasDigit = false;
+            while (i < length) {
+                char c = normalized.charAt(i);
+                if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                    i++;
+                    continue;
+                }
+                if (!Character.isLetterOrDigit(c)) break;
+                hash = (hash ^ c) * 0x100000001b3L;
+                hasDigit |= Character.isDigit(c);
+                tokenLength++;
+                i++;
+            }
+            if (tokenLength == 0) continue;
+
+            window[tokens % SHINGLE_SIZE] = hash;
+            numeric[tokens % SHINGLE_SIZE] = hasDigit;
+            tokens++;
+            if (tokens >= SHINGLE_SIZE) {
+                addShingle(weights, window, numeric, tokens);
+            }
+        }
+
+        if (tokens < minTokens || tokens < SHINGLE_SIZE) return null;
+
+        long fingerprint = 0;
+        for (int bit = 0; bit < BITS; bit++) {
+            if (weights[bit] > 0) fingerprint |= 1L << bit;
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // 1.0 para fingerprints iguais, 0.0 para todos os bits diferentes
+    public static double similarity(long a, long b) {
+        return 1.0 - (double) distance(a, b) / BITS;
+    }
+
+    // Combina os hashes das últimas SHINGLE_SIZE palavras, na ordem em que apareceram
+    private static void addShingle(int[] weights, long[] window, boolean[] numeric, int tokens) {
+        long hash = 0;
+        boolean hasNumber = false;
+        for (int k = 0; k < SHINGLE_SIZE; k++) {
+            int slot = (tokens + k) % SHINGLE_SIZE;
+            hash = hash * 31 + window[slot];
+            hasNumber |= numeric[slot];
+        }
+        hash = mix(hash);
+
+        int weight = hasNumber ? NUMERIC_WEIGHT : 1;
+        for (int bit = 0; bit < BITS; bit++) {
+            weights[bit] += ((hash >>> bit) & 1) != 0 ? weight : -weight;
+        }
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
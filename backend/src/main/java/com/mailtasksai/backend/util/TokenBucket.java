@@ -0,0 +1,48 @@
+package com.mailtasksai.backend.util;
+
+// Token bucket thread-safe com reposição contínua. A capacidade é o orçamento de um minuto,
+// reposto linearmente ao longo dele. acquire bloqueia até haver saldo suficiente.
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long lastRefillNanos;
+
+    public TokenBucket(long perMinute) {
+        this.capacity = Math.max(1, perMinute);
+        this.refillPerNano = capacity / 60_000_000_000.0;
+        this.available = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    // Pedidos maiores que a capacidade são limitados a ela, senão nunca seriam atendidos
+    public void acquire(long amount) throws InterruptedException {
+        double needed = Math.min(Math.max(amount, 1), capacity);
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (available >= needed) {
+                    available -= needed;
+                    return;
+                }
+                waitNanos = (long) ((needed - available) / refillPerNano);
+            }
+            Thread.sleep(Math.max(1, waitNanos / 1_000_000));
+        }
+    }
+
+    // Corrige uma reserva pelo consumo real: positivo devolve o que foi reservado a mais, negativo debita
+    // o que faltou (o saldo pode ficar negativo, até uma capacidade, e as próximas reservas esperam mais)
+    public synchronized void adjust(long amount) {
+        refill();
+        available = Math.max(-capacity, Math.min(capacity, available + amount));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,40 @@
+package com.mailtasksai.backend.util;
+
+// Estimativa local do número de tokens de um texto, sem depender do tokenizer da OpenAI.
+// Aproxima o BPE: palavras curtas custam 1 token, longas ~1 a cada 4 caracteres (um pouco mais
+// quando têm acento, comum em português), números ~1 a cada 3 dígitos e cada pontuação 1 token.
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        if (text == null) return 0;
+
+        int tokens = 0;
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < length && Character.isDigit(text.charAt(i))) i++;
+                tokens += (i - start + 2) / 3;
+            } else if (Character.isLetter(c)) {
+                int start = i;
+                int accented = 0;
+                while (i < length && Character.isLetter(text.charAt(i))) {
+                    if (text.charAt(i) > 127) accented++;
+                    i++;
+                }
+                tokens += Math.max(1, (i - start + accented + 3) / 4);
+            } else {
+                tokens++;
+                i++;
+            }
+        }
+        return tokens;
+    }
+}
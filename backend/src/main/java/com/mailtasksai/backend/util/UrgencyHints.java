@@ -0,0 +1,39 @@
+package com.mailtasksai.backend.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Set;
+
+// Detecta, sem chamar a IA, se uma resposta numa conversa pode ter mudado a urgência da tarefa:
+// cobranças, prazos curtos e escalonamentos. Serve só como filtro barato; quem decide a nova
+// urgência continua sendo o classificador.
+public final class UrgencyHints {
+
+    private static final Set<String> WORDS = Set.of(
+            "urgente", "urgencia", "urgent", "urgently", "asap", "imediato", "imediata", "imediatamente",
+            "hoje", "today", "agora", "prazo", "deadline", "atraso", "atrasado", "atrasada", "vencido", "vencida",
+            "cobranca", "escalar", "critico", "critica", "critical", "parado", "parada", "bloqueado", "bloqueada");
+
+    private static final String[] PHRASES = {
+            "o quanto antes", "quanto antes", "ainda hoje", "ate amanha", "sem falta", "com prioridade",
+            "as soon as possible", "end of day", "ultimo aviso", "segundo aviso"
+    };
+
+    private UrgencyHints() {
+    }
+
+    public static boolean mayRaiseUrgency(String text) {
+        if (text == null || text.isBlank()) return false;
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        for (String phrase : PHRASES) {
+            if (normalized.contains(phrase)) return true;
+        }
+        for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (WORDS.contains(word)) return true;
+        }
+        return false;
+    }
+}
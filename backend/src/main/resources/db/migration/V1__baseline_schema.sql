@@ -0,0 +1,162 @@
+-- Esquema até aqui mantido pelo ddl-auto: update. Tudo com IF NOT EXISTS para que a primeira
+-- execução numa base já existente (baseline-on-migrate, versão 0) só complete o que faltar.
+
+CREATE TABLE IF NOT EXISTS companies (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS categories (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(255) NOT NULL UNIQUE,
+    color varchar(7) NOT NULL,
+    created_at timestamp(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company_id bigint NOT NULL REFERENCES companies,
+    name varchar(255) NOT NULL,
+    email varchar(255) NOT NULL,
+    password varchar(255) NOT NULL,
+    role varchar(255),
+    created_at timestamp(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS company_tokens (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company_id bigint NOT NULL UNIQUE REFERENCES companies,
+    access_token TEXT NOT NULL,
+    refresh_token TEXT NOT NULL,
+    expires_at timestamp(6) NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS tasks (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company_id bigint NOT NULL REFERENCES companies,
+    email_message_id varchar(255) NOT NULL,
+    conversation_id varchar(512),
+    resumo_tarefa TEXT NOT NULL,
+    email_subject TEXT,
+    email_body TEXT,
+    urgencia varchar(255) NOT NULL CHECK (urgencia IN ('URGENTE', 'MEDIANO', 'ROTINEIRA')),
+    categoria_sugerida varchar(255) NOT NULL,
+    from_email varchar(255) NOT NULL,
+    to_email varchar(255),
+    received_at timestamp(6) NOT NULL,
+    status varchar(255) NOT NULL CHECK (status IN ('PENDING', 'COMPLETED', 'CANCELLED', 'VIEWED')),
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6) NOT NULL,
+    ai_confidence float(53),
+    classification_source varchar(20) CHECK (classification_source IN ('LLM', 'LOCAL')),
+    content_fingerprint bigint,
+    completion_message TEXT,
+    ai_summary_formatted TEXT,
+    CONSTRAINT uk_tasks_company_message UNIQUE (company_id, email_message_id)
+);
+
+-- Colunas que o ddl-auto pode ainda não ter criado em bases antigas
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS conversation_id varchar(512);
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS classification_source varchar(20);
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS content_fingerprint bigint;
+-- Sem a restrição, ciclos de polling concorrentes podiam gravar a mesma mensagem mais de uma vez:
+-- fica a tarefa mais antiga de cada mensagem, senão o índice único abaixo não seria criado
+DELETE FROM tasks t
+USING tasks older
+WHERE older.company_id = t.company_id
+  AND older.email_message_id = t.email_message_id
+  AND older.id < t.id;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_tasks_company_message ON tasks (company_id, email_message_id);
+
+CREATE TABLE IF NOT EXISTS task_messages (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    task_id bigint NOT NULL,
+    company_id bigint NOT NULL,
+    email_message_id varchar(255) NOT NULL,
+    from_email varchar(255),
+    email_subject TEXT,
+    received_at timestamp(6),
+    similarity float(53),
+    created_at timestamp(6) NOT NULL,
+    CONSTRAINT uk_task_messages_company_message UNIQUE (company_id, email_message_id)
+);
+CREATE INDEX IF NOT EXISTS idx_task_messages_task ON task_messages (task_id);
+
+CREATE TABLE IF NOT EXISTS graph_subscriptions (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company_id bigint NOT NULL UNIQUE REFERENCES companies,
+    subscription_id varchar(255) NOT NULL UNIQUE,
+    resource varchar(255) NOT NULL,
+    client_state varchar(255) NOT NULL,
+    expires_at timestamp(6) NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS mailbox_sync_state (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company_id bigint NOT NULL UNIQUE REFERENCES companies,
+    delta_link TEXT,
+    last_synced_at timestamp(6),
+    last_received_at timestamp(6),
+    next_poll_at timestamp(6),
+    poll_interval_seconds integer,
+    arrival_rate_per_hour float(53),
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS ingestion_work_items (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company_id bigint NOT NULL REFERENCES companies,
+    message_id varchar(255) NOT NULL,
+    status varchar(255) NOT NULL CHECK (status IN ('PENDING', 'DEAD')),
+    attempts integer NOT NULL,
+    next_attempt_at timestamp(6) NOT NULL,
+    last_error TEXT,
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6) NOT NULL,
+    CONSTRAINT uk_ingestion_work_company_message UNIQUE (company_id, message_id)
+);
+CREATE INDEX IF NOT EXISTS idx_ingestion_work_due ON ingestion_work_items (status, next_attempt_at);
+
+CREATE TABLE IF NOT EXISTS ingestion_nodes (
+    node_id varchar(100) PRIMARY KEY,
+    started_at timestamp(6) NOT NULL,
+    heartbeat_at timestamp(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS mailbox_leases (
+    company_id bigint PRIMARY KEY,
+    node_id varchar(100) NOT NULL,
+    expires_at timestamp(6) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_mailbox_leases_node ON mailbox_leases (node_id);
+
+CREATE TABLE IF NOT EXISTS ai_classification_cache (
+    content_hash varchar(64) PRIMARY KEY,
+    result_json TEXT NOT NULL,
+    hit_count bigint NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    last_hit_at timestamp(6)
+);
+CREATE INDEX IF NOT EXISTS idx_ai_cache_created_at ON ai_classification_cache (created_at);
+
+CREATE TABLE IF NOT EXISTS ai_token_usage (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company_id bigint NOT NULL,
+    usage_date date NOT NULL,
+    provider varchar(50) NOT NULL,
+    model varchar(100) NOT NULL,
+    request_count bigint NOT NULL,
+    prompt_tokens bigint NOT NULL,
+    completion_tokens bigint NOT NULL,
+    cost_usd float(53) NOT NULL,
+    updated_at timestamp(6) NOT NULL,
+    CONSTRAINT uk_ai_token_usage UNIQUE (company_id, usage_date, provider, model)
+);
+CREATE INDEX IF NOT EXISTS idx_ai_token_usage_date ON ai_token_usage (usage_date);
@@ -0,0 +1,23 @@
+-- Coluna de busca textual das tarefas (TaskSpecifications#withFullTextSearch), gerada pelo próprio Postgres.
+-- Pesos: assunto e resumo (A) valem mais que o remetente (B) e o corpo (C). O corpo é limitado
+-- para não estourar o tamanho máximo de um tsvector em e-mails enormes.
+-- Bases que subiram com o ddl-auto podem ter a coluna como tsvector comum: ela é recriada.
+DO $$
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'tasks'
+          AND column_name = 'search_vector' AND is_generated = 'ALWAYS'
+    ) THEN
+        ALTER TABLE tasks DROP COLUMN IF EXISTS search_vector;
+        ALTER TABLE tasks ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+            setweight(to_tsvector('portuguese'::regconfig, coalesce(email_subject, '')), 'A') ||
+            setweight(to_tsvector('portuguese'::regconfig, coalesce(resumo_tarefa, '')), 'A') ||
+            setweight(to_tsvector('simple'::regconfig, coalesce(from_email, '')), 'B') ||
+            setweight(to_tsvector('portuguese'::regconfig, left(coalesce(email_body, ''), 20000)), 'C')
+        ) STORED;
+    END IF;
+END
+$$;
+
+CREATE INDEX IF NOT EXISTS idx_tasks_search_vector ON tasks USING GIN (search_vector);
@@ -0,0 +1,28 @@
+-- Índices para os filtros do TaskRepository, das Specifications e da ingestão.
+-- (company_id, email_message_id) já é coberto pela uk_tasks_company_message.
+
+-- Listagem por empresa ordenada pela data de recebimento
+CREATE INDEX IF NOT EXISTS idx_tasks_company_received_at ON tasks (company_id, received_at);
+
+-- Contadores do dashboard e filtros de status, urgência e categoria, com a página já ordenada por data
+CREATE INDEX IF NOT EXISTS idx_tasks_company_status_received ON tasks (company_id, status, received_at);
+CREATE INDEX IF NOT EXISTS idx_tasks_company_urgencia_received ON tasks (company_id, urgencia, received_at);
+CREATE INDEX IF NOT EXISTS idx_tasks_company_categoria ON tasks (company_id, categoria_sugerida);
+
+-- Conversas do ConversationTracker. Tarefas antigas e manuais não têm conversation_id e ficam fora do índice.
+-- O filtro não usa o status porque ele chega como parâmetro e um plano genérico não provaria o predicado.
+DROP INDEX IF EXISTS idx_tasks_company_conversation;
+CREATE INDEX IF NOT EXISTS idx_tasks_company_conversation ON tasks (company_id, conversation_id, status)
+    WHERE conversation_id IS NOT NULL;
+
+-- Janela do NearDuplicateIndex respondida só pelo índice (index-only scan), sem ler os corpos dos e-mails
+CREATE INDEX IF NOT EXISTS idx_tasks_company_fingerprint ON tasks (company_id, received_at)
+    INCLUDE (id, content_fingerprint, email_message_id)
+    WHERE content_fingerprint IS NOT NULL;
+
+-- A fila de retentativas só procura itens PENDING vencidos; os DEAD não precisam estar no índice
+DROP INDEX IF EXISTS idx_ingestion_work_due;
+CREATE INDEX IF NOT EXISTS idx_ingestion_work_due ON ingestion_work_items (next_attempt_at)
+    WHERE status = 'PENDING';
+
+ANALYZE tasks;
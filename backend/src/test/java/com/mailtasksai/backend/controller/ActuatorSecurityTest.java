@@ -0,0 +1,62 @@
+package com.mailtasksai.backend.controller;
+
+import com.mailtasksai.backend.config.JwtFilter;
+import com.mailtasksai.backend.config.SecurityConfig;
+import com.mailtasksai.backend.service.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Os endpoints do actuator são trocados por um controller falso nos mesmos caminhos:
+// o que está sendo testado é a cadeia de segurança real com o token real do login
+@WebMvcTest(controllers = ActuatorSecurityTest.FakeActuatorController.class)
+@Import({SecurityConfig.class, JwtFilter.class, JwtService.class, ActuatorSecurityTest.FakeActuatorController.class})
+@TestPropertySource(properties = "jwt.secret=segredo-de-teste-com-mais-de-32-bytes-para-hs256")
+class ActuatorSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void tenantAdminCannotReadUsageOfAllCompanies() throws Exception {
+        String token = jwtService.generateToken("42", "admin");
+
+        mockMvc.perform(get("/actuator/aiusage").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/metrics").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void operatorCanReadUsage() throws Exception {
+        String token = jwtService.generateToken("1", "operator");
+
+        mockMvc.perform(get("/actuator/aiusage").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void healthStaysPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    @RestController
+    static class FakeActuatorController {
+
+        @GetMapping({"/actuator/aiusage", "/actuator/metrics", "/actuator/health"})
+        String endpoint() {
+            return "{}";
+        }
+    }
+}
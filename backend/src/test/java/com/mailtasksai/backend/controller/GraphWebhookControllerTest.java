@@ -0,0 +1,99 @@
+package com.mailtasksai.backend.controller;
+
+import com.mailtasksai.backend.dto.GraphNotification;
+import com.mailtasksai.backend.service.GraphSubscriptionService;
+import com.mailtasksai.backend.service.IngestionWorkQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Faz o papel do Graph: posta o handshake e notificações no formato real do webhook
+@ExtendWith(MockitoExtension.class)
+class GraphWebhookControllerTest {
+
+    @Mock
+    private GraphSubscriptionService subscriptionService;
+
+    @Mock
+    private IngestionWorkQueue ingestionWorkQueue;
+
+    @InjectMocks
+    private GraphWebhookController controller;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void echoesValidationTokenOnSubscriptionHandshake() throws Exception {
+        mockMvc.perform(post("/api/graph/notifications").param("validationToken", "abc 123"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+                .andExpect(content().string("abc 123"));
+    }
+
+    @Test
+    void enqueuesMessageIdsFromValidNotifications() throws Exception {
+        when(subscriptionService.resolveCompanyId(argThat(n -> n != null && "sub-1".equals(n.getSubscriptionId()))))
+                .thenReturn(Optional.of(42L));
+
+        mockMvc.perform(post("/api/graph/notifications")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(notification("sub-1", "segredo", "AAMkAD-1")))
+                .andExpect(status().isAccepted());
+
+        verify(ingestionWorkQueue).enqueue(42L, "AAMkAD-1");
+    }
+
+    @Test
+    void ignoresNotificationsWithUnknownClientState() throws Exception {
+        when(subscriptionService.resolveCompanyId(any(GraphNotification.class))).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/api/graph/notifications")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(notification("sub-1", "forjado", "AAMkAD-2")))
+                .andExpect(status().isAccepted());
+
+        verify(ingestionWorkQueue, never()).enqueue(anyLong(), anyString());
+    }
+
+    private String notification(String subscriptionId, String clientState, String messageId) {
+        return """
+                {
+                  "value": [{
+                    "subscriptionId": "%s",
+                    "clientState": "%s",
+                    "changeType": "created",
+                    "resource": "Users/u-1/Messages/%s",
+                    "tenantId": "t-1",
+                    "resourceData": {
+                      "@odata.type": "#Microsoft.Graph.Message",
+                      "id": "%s"
+                    }
+                  }]
+                }
+                """.formatted(subscriptionId, clientState, messageId, messageId);
+    }
+}
@@ -0,0 +1,136 @@
+package com.mailtasksai.backend.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Base criada pelo antigo ddl-auto: update (tabelas como o Hibernate gerava, sem a restrição única de
+// tasks e com mensagens duplicadas), migrada como em produção: baseline-on-migrate na versão 0.
+// Sem Postgres acessível o teste é ignorado.
+class BaselineMigrationTest {
+
+    private static final String SCHEMA = "baseline_test";
+
+    private static JdbcTemplate jdbcTemplate;
+    private static Flyway flyway;
+
+    @BeforeAll
+    static void setUp() {
+        String url = System.getenv().getOrDefault("PLAN_TEST_DB_URL", "jdbc:postgresql://localhost:5432/mailtasksai");
+        String username = System.getenv().getOrDefault("DB_USERNAME", "postgres");
+        String password = System.getenv().getOrDefault("DB_PASSWORD", "");
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA, username, password));
+        try {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        } catch (Exception e) {
+            assumeTrue(false, "Postgres indisponível em " + url + ": " + e.getMessage());
+        }
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        createLegacySchema();
+
+        flyway = Flyway.configure()
+                .dataSource(url, username, password)
+                .schemas(SCHEMA)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .cleanDisabled(false)
+                .load();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (flyway != null) {
+            flyway.clean();
+        }
+        if (jdbcTemplate != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        }
+    }
+
+    @Test
+    void migratesLegacySchemaWithDuplicateMessages() {
+        flyway.migrate();
+
+        List<Long> tasks = jdbcTemplate.queryForList("SELECT id FROM tasks ORDER BY id", Long.class);
+        assertEquals(List.of(1L, 3L), tasks);
+        assertThrows(DuplicateKeyException.class, () -> insertTask(4, "msg-1"));
+    }
+
+    private static void createLegacySchema() {
+        jdbcTemplate.execute("""
+                CREATE TABLE companies (
+                    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    created_at timestamp(6) NOT NULL,
+                    name varchar(255) NOT NULL,
+                    updated_at timestamp(6) NOT NULL
+                );
+                CREATE TABLE categories (
+                    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    color varchar(7) NOT NULL,
+                    created_at timestamp(6) NOT NULL,
+                    name varchar(255) NOT NULL UNIQUE
+                );
+                CREATE TABLE users (
+                    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    created_at timestamp(6) NOT NULL,
+                    email varchar(255) NOT NULL,
+                    name varchar(255) NOT NULL,
+                    password varchar(255) NOT NULL,
+                    role varchar(255),
+                    company_id bigint NOT NULL REFERENCES companies
+                );
+                CREATE TABLE company_tokens (
+                    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    access_token TEXT NOT NULL,
+                    created_at timestamp(6) NOT NULL,
+                    expires_at timestamp(6) NOT NULL,
+                    refresh_token TEXT NOT NULL,
+                    updated_at timestamp(6) NOT NULL,
+                    company_id bigint NOT NULL UNIQUE REFERENCES companies
+                );
+                CREATE TABLE tasks (
+                    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    ai_confidence float(53),
+                    ai_summary_formatted TEXT,
+                    categoria_sugerida varchar(255) NOT NULL,
+                    completion_message TEXT,
+                    created_at timestamp(6) NOT NULL,
+                    email_body TEXT,
+                    email_message_id varchar(255) NOT NULL,
+                    email_subject TEXT,
+                    from_email varchar(255) NOT NULL,
+                    received_at timestamp(6) NOT NULL,
+                    resumo_tarefa TEXT NOT NULL,
+                    status varchar(255) NOT NULL CHECK (status IN ('PENDING', 'COMPLETED', 'CANCELLED', 'VIEWED')),
+                    to_email varchar(255),
+                    updated_at timestamp(6) NOT NULL,
+                    urgencia varchar(255) NOT NULL CHECK (urgencia IN ('URGENTE', 'MEDIANO', 'ROTINEIRA')),
+                    company_id bigint NOT NULL REFERENCES companies
+                );
+                INSERT INTO companies (created_at, name, updated_at) VALUES (LOCALTIMESTAMP, 'Empresa', LOCALTIMESTAMP);
+                """);
+        insertTask(1, "msg-1");
+        insertTask(2, "msg-1"); // a mesma mensagem gravada por dois ciclos de polling
+        insertTask(3, "msg-2");
+    }
+
+    private static void insertTask(long id, String messageId) {
+        jdbcTemplate.update("""
+                INSERT INTO tasks (id, categoria_sugerida, created_at, email_message_id, from_email, received_at,
+                                   resumo_tarefa, status, updated_at, urgencia, company_id)
+                VALUES (?, 'LOGISTICA', LOCALTIMESTAMP, ?, 'cliente@exemplo.com', LOCALTIMESTAMP,
+                        'Cotação de frete', 'PENDING', LOCALTIMESTAMP, 'MEDIANO', 1)
+                """, id, messageId);
+    }
+}
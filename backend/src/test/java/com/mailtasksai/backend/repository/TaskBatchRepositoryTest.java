@@ -0,0 +1,66 @@
+package com.mailtasksai.backend.repository;
+
+import com.mailtasksai.backend.model.UrgenciaEnum;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// raiseUrgency contra o Postgres, numa tabela mínima num schema separado. Sem Postgres o teste é ignorado.
+class TaskBatchRepositoryTest {
+
+    private static final String SCHEMA = "urgency_test";
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TaskBatchRepository repository;
+
+    @BeforeAll
+    static void setUp() {
+        String url = System.getenv().getOrDefault("PLAN_TEST_DB_URL", "jdbc:postgresql://localhost:5432/mailtasksai");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA,
+                System.getenv().getOrDefault("DB_USERNAME", "postgres"),
+                System.getenv().getOrDefault("DB_PASSWORD", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        try {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        } catch (Exception e) {
+            assumeTrue(false, "Postgres indisponível em " + url + ": " + e.getMessage());
+        }
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("CREATE TABLE " + SCHEMA + ".tasks (id BIGINT PRIMARY KEY, urgencia VARCHAR(255) NOT NULL, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("INSERT INTO " + SCHEMA + ".tasks (id, urgencia) VALUES (1, 'URGENTE'), (2, 'MEDIANO'), (3, 'ROTINEIRA')");
+
+        repository = new TaskBatchRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (jdbcTemplate != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        }
+    }
+
+    @Test
+    void raiseUrgencyNeverLowersIt() {
+        assertFalse(repository.raiseUrgency(1L, UrgenciaEnum.MEDIANO));
+        assertFalse(repository.raiseUrgency(2L, UrgenciaEnum.MEDIANO));
+        assertTrue(repository.raiseUrgency(3L, UrgenciaEnum.MEDIANO));
+
+        assertEquals("URGENTE", urgencia(1L));
+        assertEquals("MEDIANO", urgencia(2L));
+        assertEquals("MEDIANO", urgencia(3L));
+    }
+
+    private String urgencia(Long id) {
+        return jdbcTemplate.queryForObject("SELECT urgencia FROM tasks WHERE id = ?", String.class, id);
+    }
+}
@@ -0,0 +1,292 @@
+package com.mailtasksai.backend.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mailtasksai.backend.model.Task;
+import com.mailtasksai.backend.model.TaskStatus;
+import com.mailtasksai.backend.model.UrgenciaEnum;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Roda as migrações num schema separado, povoa com volume parecido com produção e confere pelo EXPLAIN
+// que as consultas quentes das tarefas e da fila usam índice. As consultas são as que os repositórios
+// realmente enviam ao banco (capturadas no DataSource), não cópias do SQL. Os planos são genéricos
+// (EXPLAIN GENERIC_PLAN, Postgres 16+), como os dos prepared statements do JDBC depois de algumas
+// execuções. Sem Postgres 16 acessível o teste é ignorado.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({IngestionWorkItemRepository.class, TaskQueryPlanTest.CaptureConfig.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIf("postgresAvailable")
+class TaskQueryPlanTest {
+
+    private static final String SCHEMA = "plan_test";
+    private static final Set<String> WATCHED_TABLES = Set.of("tasks", "ingestion_work_items");
+    private static final Pattern WATCHED_SQL = Pattern.compile("\\b(tasks|ingestion_work_items)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private IngestionWorkItemRepository workItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    static boolean postgresAvailable() {
+        try (Connection connection = DriverManager.getConnection(url(), username(), password());
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW server_version_num")) {
+            return rs.next() && rs.getInt(1) >= 160000;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> url() + (url().contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA);
+        registry.add("spring.datasource.username", TaskQueryPlanTest::username);
+        registry.add("spring.datasource.password", TaskQueryPlanTest::password);
+        registry.add("spring.flyway.schemas", () -> SCHEMA);
+        registry.add("spring.flyway.clean-disabled", () -> "false");
+    }
+
+    // Fora da transação de cada teste: os dados ficam gravados para o VACUUM ANALYZE
+    @BeforeAll
+    void populate() {
+        jdbcTemplate.execute("""
+                INSERT INTO companies (name, created_at, updated_at)
+                SELECT 'Empresa ' || g, LOCALTIMESTAMP, LOCALTIMESTAMP FROM generate_series(1, 200) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO tasks (company_id, email_message_id, conversation_id, resumo_tarefa, email_subject, email_body,
+                                   urgencia, categoria_sugerida, from_email, received_at, status, content_fingerprint,
+                                   created_at, updated_at)
+                SELECT 1 + g % 200,
+                       'msg-' || g,
+                       CASE WHEN g % 3 = 0 THEN NULL ELSE 'conv-' || (g / 2) END,
+                       'Cotação de frete rota ' || (ARRAY['São Paulo', 'Curitiba', 'Recife', 'Manaus'])[1 + g % 4],
+                       (ARRAY['Pedido de cotação', 'Nota fiscal de março', 'Reunião de alinhamento', 'Boleto em atraso'])[1 + g % 4] || ' ' || g,
+                       repeat('Favor enviar valor e prazo de entrega da carga de pallets. ', 1 + g % 5),
+                       (ARRAY['URGENTE', 'MEDIANO', 'ROTINEIRA'])[1 + g % 3],
+                       (ARRAY['FINANCEIRO', 'RH', 'LOGISTICA', 'VENDAS', 'COMPRAS'])[1 + g % 5],
+                       'cliente' || (g % 500) || '@exemplo.com',
+                       LOCALTIMESTAMP - (g % 4000) * INTERVAL '1 hour',
+                       (ARRAY['PENDING', 'VIEWED', 'COMPLETED', 'CANCELLED'])[1 + g % 4],
+                       CASE WHEN g % 2 = 0 THEN g * 7919 END,
+                       LOCALTIMESTAMP, LOCALTIMESTAMP
+                FROM generate_series(1, 50000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO ingestion_work_items (company_id, message_id, status, attempts, next_attempt_at, created_at, updated_at)
+                SELECT 1 + g % 200, 'work-' || g, CASE WHEN g % 20 = 0 THEN 'PENDING' ELSE 'DEAD' END, 3,
+                       LOCALTIMESTAMP - (g % 100) * INTERVAL '1 minute', LOCALTIMESTAMP, LOCALTIMESTAMP
+                FROM generate_series(1, 20000) g
+                """);
+        jdbcTemplate.execute("VACUUM ANALYZE tasks");
+        jdbcTemplate.execute("VACUUM ANALYZE ingestion_work_items");
+    }
+
+    @AfterAll
+    void dropSchema() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void existingMessageIdsUseUniqueIndex() throws Exception {
+        assertNoSeqScan(() -> taskRepository.findExistingMessageIds(7L, List.of("msg-7", "msg-207", "msg-407")));
+    }
+
+    @Test
+    void companyPageOrderedByReceivedAt() throws Exception {
+        assertNoSeqScan(() -> taskRepository.findByCompanyId(7L, PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "receivedAt"))));
+        assertNoSeqScan(() -> taskRepository.findByCompanyIdOrderByReceivedAtDesc(7L));
+    }
+
+    @Test
+    void dashboardCounters() throws Exception {
+        assertNoSeqScan(() -> taskRepository.countByCompanyIdAndStatus(7L, TaskStatus.PENDING));
+        assertNoSeqScan(() -> taskRepository.countByCompanyIdAndUrgencia(7L, UrgenciaEnum.URGENTE));
+        assertNoSeqScan(() -> taskRepository.countByCompanyIdAndCategoriaSugerida(7L, "RH"));
+    }
+
+    @Test
+    void filteredSearchPage() throws Exception {
+        Specification<Task> spec = TaskSpecifications.withCompanyId(7L)
+                .and(TaskSpecifications.withStatus(TaskStatus.PENDING))
+                .and(TaskSpecifications.withUrgencia(UrgenciaEnum.URGENTE))
+                .and(TaskSpecifications.withDateRange(LocalDate.now().minusDays(30), LocalDate.now()));
+        assertNoSeqScan(() -> taskRepository.findAll(spec, PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "receivedAt"))));
+    }
+
+    @Test
+    void fullTextSearch() throws Exception {
+        Specification<Task> spec = TaskSpecifications.withCompanyId(7L)
+                .and(TaskSpecifications.withFullTextSearch("nota fiscal"));
+        assertNoSeqScan(() -> taskRepository.findAll(spec, PageRequest.of(0, 20)));
+    }
+
+    @Test
+    void openConversationLookup() throws Exception {
+        assertNoSeqScan(() -> taskRepository.findByConversationIds(7L, List.of("conv-3", "conv-103"),
+                List.of(TaskStatus.PENDING, TaskStatus.VIEWED)));
+    }
+
+    @Test
+    void fingerprintWindow() throws Exception {
+        assertNoSeqScan(() -> taskRepository.findFingerprintsSince(7L, LocalDateTime.now().minusHours(72)));
+    }
+
+    @Test
+    void retryQueueClaim() throws Exception {
+        assertNoSeqScan(() -> workItemRepository.claimDue(50, 300));
+    }
+
+    // Executa a chamada do repositório e confere o plano de cada comando que ela mandou para as tabelas vigiadas
+    private void assertNoSeqScan(Runnable repositoryCall) throws Exception {
+        statements.clear();
+        repositoryCall.run();
+        List<String> captured = statements.stream().filter(sql -> WATCHED_SQL.matcher(sql).find()).toList();
+        assertFalse(captured.isEmpty(), "Nenhuma consulta capturada");
+
+        // Protocolo simples: no estendido o driver exigiria valores para os $n do plano genérico
+        try (Connection connection = DriverManager.getConnection(
+                url() + (url().contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA + "&preferQueryMode=simple",
+                username(), password());
+             Statement statement = connection.createStatement()) {
+            for (String sql : captured) {
+                JsonNode plan;
+                try (ResultSet rs = statement.executeQuery("EXPLAIN (GENERIC_PLAN, FORMAT JSON) " + numberParameters(sql))) {
+                    rs.next();
+                    plan = objectMapper.readTree(rs.getString(1)).get(0).get("Plan");
+                }
+
+                List<String> seqScans = new ArrayList<>();
+                collectSeqScans(plan, seqScans);
+                assertTrue(seqScans.isEmpty(), "Seq Scan em " + seqScans + " para:\n" + sql + "\n" + plan.toPrettyString());
+            }
+        }
+    }
+
+    // JDBC usa "?"; o EXPLAIN de um plano genérico espera $1, $2...
+    private static String numberParameters(String sql) {
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        boolean inLiteral = false;
+        for (char c : sql.toCharArray()) {
+            if (c == '\'') inLiteral = !inLiteral;
+            if (c == '?' && !inLiteral) {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+
+    private void collectSeqScans(JsonNode node, List<String> seqScans) {
+        if ("Seq Scan".equals(node.path("Node Type").asText()) && WATCHED_TABLES.contains(node.path("Relation Name").asText())) {
+            seqScans.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSeqScans(child, seqScans);
+        }
+    }
+
+    private static String url() {
+        return System.getenv().getOrDefault("PLAN_TEST_DB_URL", "jdbc:postgresql://localhost:5432/mailtasksai");
+    }
+
+    private static String username() {
+        return System.getenv().getOrDefault("DB_USERNAME", "postgres");
+    }
+
+    private static String password() {
+        return System.getenv().getOrDefault("DB_PASSWORD", "");
+    }
+
+    @TestConfiguration
+    static class CaptureConfig {
+
+        // Schema recriado do zero a cada execução
+        @Bean
+        FlywayMigrationStrategy cleanMigrate() {
+            return flyway -> {
+                flyway.clean();
+                flyway.migrate();
+            };
+        }
+
+        // Guarda o SQL de cada prepareStatement, venha do Hibernate ou do JdbcTemplate
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) return bean;
+                    return new DelegatingDataSource(dataSource) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return capturing(super.getConnection());
+                        }
+                    };
+                }
+            };
+        }
+
+        private static Connection capturing(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("prepareStatement") && args != null && args[0] instanceof String sql) {
+                            statements.add(sql);
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.repository.MailboxLeaseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+// Scheduler padrão do Spring (uma thread) ocupado por um ciclo de polling bem mais longo que o node-ttl:
+// o heartbeat precisa continuar saindo, senão os outros nós dariam este como morto
+@SpringJUnitConfig(ClusterCoordinatorTest.Config.class)
+@TestPropertySource(properties = "ingestion.cluster.heartbeat-ms=50")
+class ClusterCoordinatorTest {
+
+    @MockitoBean
+    private MailboxLeaseRepository leaseRepository;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Test
+    void slowPollDoesNotDelayHeartbeat() {
+        verify(leaseRepository, timeout(1000).atLeast(6)).heartbeat(anyString());
+    }
+
+    @Configuration
+    @EnableScheduling
+    @Import({ClusterCoordinator.class, SlowPoller.class})
+    static class Config {
+    }
+
+    static class SlowPoller {
+
+        @Scheduled(fixedDelay = 10)
+        void poll() throws InterruptedException {
+            Thread.sleep(5000);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.config.IngestionConfig;
+import com.mailtasksai.backend.dto.EmailAddress;
+import com.mailtasksai.backend.dto.EmailMessage;
+import com.mailtasksai.backend.dto.EmailMessageBody;
+import com.mailtasksai.backend.dto.EmailRecipient;
+import com.mailtasksai.backend.model.Company;
+import com.mailtasksai.backend.repository.IngestionWorkItemRepository;
+import com.mailtasksai.backend.repository.TaskBatchRepository;
+import com.mailtasksai.backend.repository.TaskMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+// E-mails que chegam juntos ao classify precisam ir numa única chamada à IA (ai.batch.max-emails)
+@SpringJUnitConfig({IngestionPipeline.class, AIProcessingService.class, IngestionConfig.class})
+class IngestionPipelineTest {
+
+    @MockitoBean private MessageDeduplicator messageDeduplicator;
+    @MockitoBean private LocalTaskClassifier localTaskClassifier;
+    @MockitoBean private TaskBatchRepository taskBatchRepository;
+    @MockitoBean private IngestionWorkItemRepository workItemRepository;
+    @MockitoBean private NearDuplicateIndex nearDuplicateIndex;
+    @MockitoBean private TaskMessageRepository taskMessageRepository;
+    @MockitoBean private ConversationTracker conversationTracker;
+    @MockitoBean private ClassificationCache classificationCache;
+    @MockitoBean private AIProviderRouter providerRouter;
+    @MockitoBean private AIUsageLedger usageLedger;
+
+    @Autowired
+    private IngestionPipeline pipeline;
+
+    @Test
+    void emailsOfOneCycleShareAProviderCall() {
+        when(messageDeduplicator.filterNew(anyLong(), any()))
+                .thenAnswer(invocation -> new HashSet<String>(invocation.getArgument(1)));
+        Queue<String> prompts = new ConcurrentLinkedQueue<>();
+        when(providerRouter.complete(anyString(), anyString(), anyLong())).thenAnswer(invocation -> {
+            String userPrompt = invocation.getArgument(1);
+            prompts.add(userPrompt);
+            return new AIProvider.AICompletion("openai", "gpt-4o-mini", response(userPrompt), 100, 50, 0.0, 10);
+        });
+
+        Company company = new Company();
+        company.setId(1L);
+        company.setName("Empresa");
+        IngestionBatch batch = pipeline.openBatch(company, "dono@empresa.com");
+        batch.submit(IntStream.rangeClosed(1, 5).mapToObj(this::email).toList());
+        batch.await();
+
+        assertTrue(prompts.stream().anyMatch(prompt -> prompt.split("### message_id:").length > 2),
+                "nenhuma chamada à IA levou mais de um e-mail: " + prompts.size() + " chamadas");
+    }
+
+    // Lote: um resultado por "### message_id"; individual: o objeto direto
+    private String response(String userPrompt) {
+        int emails = userPrompt.split("### message_id:").length - 1;
+        String result = "\"resumo_tarefa\": \"Responder cliente\", \"urgencia\": \"MEDIANO\"";
+        if (emails == 0) return "{" + result + "}";
+        return IntStream.rangeClosed(1, emails)
+                .mapToObj(i -> "{\"message_id\": " + i + ", " + result + "}")
+                .collect(Collectors.joining(", ", "{\"resultados\": [", "]}"));
+    }
+
+    private EmailMessage email(int n) {
+        EmailAddress address = new EmailAddress();
+        address.setAddress("cliente" + n + "@fornecedor.com");
+        EmailRecipient from = new EmailRecipient();
+        from.setEmailAddress(address);
+        EmailMessageBody body = new EmailMessageBody();
+        body.setContentType("text");
+        body.setContent("Pedido " + n + ": favor enviar a cotação atualizada até sexta-feira.");
+
+        EmailMessage email = new EmailMessage();
+        email.setId("msg-" + n);
+        email.setSubject("Cotação " + n);
+        email.setFrom(from);
+        email.setBody(body);
+        email.setReceivedDateTime(LocalDateTime.now());
+        return email;
+    }
+}
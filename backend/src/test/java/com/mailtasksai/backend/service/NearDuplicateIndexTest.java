@@ -0,0 +1,80 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.TaskFingerprint;
+import com.mailtasksai.backend.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+// Uma tarefa de cotação já existe; só o lembrete do mesmo pedido pode ser anexado a ela
+@SpringJUnitConfig(NearDuplicateIndex.class)
+class NearDuplicateIndexTest {
+
+    private static final String SUBJECT = "Cotação de frete";
+    private static final String REQUEST = """
+            Bom dia, precisamos de uma cotação de frete para a rota São Paulo x Curitiba.
+            A carga são dois pallets de peças automotivas, total aproximado de 800kg,
+            medidas 1,20 x 1,00 x 1,50 cada. A coleta precisa ser feita até quinta-feira
+            no nosso centro de distribuição em Guarulhos. Favor enviar valor e prazo de entrega.
+            """;
+
+    @MockitoBean
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private NearDuplicateIndex index;
+
+    // O índice é o mesmo bean em todos os testes: cada teste usa uma empresa, para não ver as reservas dos outros
+    private static final AtomicLong COMPANY_IDS = new AtomicLong();
+
+    private final long companyId = COMPANY_IDS.incrementAndGet();
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void existingTask() {
+        long fingerprint = index.fingerprint(SUBJECT, REQUEST);
+        when(taskRepository.findFingerprintsSince(anyLong(), any()))
+                .thenReturn(List.of(new TaskFingerprint(1L, "original", SUBJECT, fingerprint, now.minusHours(1))));
+    }
+
+    @Test
+    void reminderOfSameRequestIsMerged() {
+        Optional<NearDuplicateIndex.Match> match = match("RE: " + SUBJECT, REQUEST + "\nAguardo retorno.");
+
+        assertTrue(match.isPresent());
+        assertEquals(1L, match.get().taskId());
+    }
+
+    @Test
+    void differentRouteIsNotMerged() {
+        assertTrue(match(SUBJECT, REQUEST.replace("Curitiba", "Porto Alegre")).isEmpty());
+    }
+
+    @Test
+    void differentQuantityIsNotMerged() {
+        assertTrue(match(SUBJECT, REQUEST.replace("800kg", "1200kg")).isEmpty());
+    }
+
+    @Test
+    void sameBodyWithAnotherSubjectIsNotMerged() {
+        assertTrue(match("Cotação de frete - Porto Alegre", REQUEST).isEmpty());
+    }
+
+    private Optional<NearDuplicateIndex.Match> match(String subject, String body) {
+        long fingerprint = index.fingerprint(subject, body);
+        return index.matchOrReserve(companyId, subject + body.hashCode(), fingerprint, subject, now);
+    }
+}
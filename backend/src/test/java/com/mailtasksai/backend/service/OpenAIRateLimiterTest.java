@@ -0,0 +1,43 @@
+package com.mailtasksai.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// TPM de 100 tokens por segundo: depois da primeira chamada, a segunda espera ~500ms no bucket
+@SpringJUnitConfig({OpenAIRateLimiter.class, OpenAIRateLimiterTest.Metrics.class})
+@TestPropertySource(properties = {
+        "ai.rate-limit.tokens-per-minute=6000",
+        "ai.rate-limit.initial-concurrency=8",
+        "ai.rate-limit.target-latency-ms=100"
+})
+class OpenAIRateLimiterTest {
+
+    @Autowired
+    private OpenAIRateLimiter rateLimiter;
+
+    @Test
+    void waitingForTheTokenBucketIsNotProviderLatency() {
+        rateLimiter.execute(6000, () -> "ok");
+        rateLimiter.execute(50, () -> "ok");
+
+        // Chamadas instantâneas só sobem o limite; a espera local não pode ser lida como provedor lento
+        assertEquals(8, rateLimiter.getConcurrencyLimit());
+    }
+
+    @Configuration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
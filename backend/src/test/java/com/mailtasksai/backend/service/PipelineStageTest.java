@@ -0,0 +1,84 @@
+package com.mailtasksai.backend.service;
+
+import com.mailtasksai.backend.dto.EmailMessage;
+import com.mailtasksai.backend.model.Company;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class PipelineStageTest {
+
+    private final List<PipelineStage> stages = new ArrayList<>();
+
+    @AfterEach
+    void stopStages() {
+        stages.forEach(PipelineStage::stop);
+    }
+
+    // O handler conclui um item, encaminha outro e quebra: só o item que ficou no estágio é dado como falho,
+    // e o lote continua esperando o encaminhado em vez de terminar antes da hora
+    @Test
+    void failureAfterPartialCompletionDoesNotReleaseBatchEarly() throws Exception {
+        BlockingQueue<IngestionItem> forwarded = new LinkedBlockingQueue<>();
+        PipelineStage next = stage("next", forwarded::addAll);
+        PipelineStage stage = stage("test", items -> {
+            items.get(0).done();
+            try {
+                next.put(items.get(1));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            throw new IllegalStateException("falha no meio do lote");
+        });
+
+        IngestionPipeline pipeline = mock(IngestionPipeline.class);
+        doAnswer(invocation -> {
+            stage.put(invocation.getArgument(0));
+            return null;
+        }).when(pipeline).enqueue(any());
+
+        Company company = new Company();
+        company.setName("Empresa");
+        IngestionBatch batch = new IngestionBatch(pipeline, company, "dono@empresa.com");
+        // Enfileirados antes de ligar os workers, para chegarem ao handler num lote só
+        batch.submit(List.of(email("1"), email("2"), email("3")));
+        stage.start();
+        next.start();
+
+        IngestionItem inFlight = forwarded.poll(5, TimeUnit.SECONDS);
+        assertNotNull(inFlight);
+        CompletableFuture<Void> awaiting = CompletableFuture.runAsync(batch::await);
+        assertThrows(TimeoutException.class, () -> awaiting.get(300, TimeUnit.MILLISECONDS));
+
+        // O estágio seguinte termina o item encaminhado; a falha do terceiro item chega ao produtor
+        inFlight.done();
+        assertThrows(ExecutionException.class, () -> awaiting.get(5, TimeUnit.SECONDS));
+    }
+
+    private PipelineStage stage(String name, Consumer<List<IngestionItem>> handler) {
+        PipelineStage stage = new PipelineStage(name, 10, 1, 10, handler);
+        stages.add(stage);
+        return stage;
+    }
+
+    private EmailMessage email(String id) {
+        EmailMessage email = new EmailMessage();
+        email.setId(id);
+        return email;
+    }
+}
@@ -0,0 +1,90 @@
+package com.mailtasksai.backend.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.UnaryOperator;
+
+// Benchmark manual (não roda no surefire): compara a cadeia de regex antiga com o HtmlToTextConverter.
+// Execute pela IDE ou, depois de ./mvnw test-compile, com:
+//   java -cp target/test-classes:target/classes com.mailtasksai.backend.util.HtmlToTextConverterBenchmark
+// Mede CPU e bytes alocados pela thread por MB de HTML processado.
+public class HtmlToTextConverterBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    public static void main(String[] args) {
+        String html = sampleHtml(1024 * 1024);
+        double megabytes = html.length() / (1024.0 * 1024.0);
+
+        UnaryOperator<String> legacy = HtmlToTextConverterBenchmark::legacyCleanBody;
+        UnaryOperator<String> legacyPrompt = HtmlToTextConverterBenchmark::legacyPromptBody;
+
+        System.out.printf("HTML de entrada: %.2f MB%n", megabytes);
+        report("regex (corpo + prompt)", html, megabytes, s -> legacy.apply(s) + legacyPrompt.apply(s));
+        report("conversor (corpo + prompt)", html, megabytes,
+                s -> HtmlToTextConverter.toText(s) + HtmlToTextConverter.toSingleLine(s));
+    }
+
+    private static void report(String name, String html, double megabytes, UnaryOperator<String> conversion) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += conversion.apply(html).length();
+        }
+
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += conversion.apply(html).length();
+        }
+        long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        double processedMb = megabytes * MEASURED_ROUNDS;
+        System.out.printf("%-28s %8.2f ms CPU/MB %10.2f MB alocados/MB (checksum %d)%n",
+                name, cpu / 1_000_000.0 / processedMb, allocated / (1024.0 * 1024.0) / processedMb, sink);
+    }
+
+    // Cópia fiel da limpeza que existia no EmailListenerService
+    private static String legacyCleanBody(String rawBody) {
+        return rawBody
+                .replaceAll("(?i)<br\\s*/?>", "\n")
+                .replaceAll("(?i)</?p>", "\n\n")
+                .replaceAll("(?i)</?div>", "\n")
+                .replaceAll("(?i)<ul>", "\n")
+                .replaceAll("(?i)</ul>", "\n")
+                .replaceAll("(?i)<li>", "\n• ")
+                .replaceAll("(?i)</li>", "")
+                .replaceAll("<[^>]+>", "")
+                .replaceAll("&nbsp;", " ")
+                .replaceAll("&quot;", "\"")
+                .replaceAll("&amp;", "&")
+                .replaceAll("&lt;", "<")
+                .replaceAll("&gt;", ">")
+                .replaceAll("\\n{3,}", "\n\n")
+                .trim();
+    }
+
+    // Cópia fiel da limpeza que existia no AIProcessingService.buildPrompt
+    private static String legacyPromptBody(String emailBody) {
+        return emailBody.replaceAll("<[^>]*>", " ").replaceAll("\\s+", " ").trim();
+    }
+
+    private static String sampleHtml(int targetLength) {
+        String block = """
+                <div class="WordSection1"><p class="MsoNormal">Bom dia,&nbsp;equipe</p>
+                <p class="MsoNormal">Favor cotar o frete <b>URGENTE</b> para a rota S&atilde;o Paulo &gt; Rio de Janeiro:</p>
+                <ul><li>Carga: 2 pallets de 450kg</li><li>Medidas: 1,20 x 1,00 x 1,50 m</li></ul>
+                <table><tr><td>Coleta</td><td>Hoje at&eacute; 17h</td></tr></table>
+                <div>Att,<br>Jo&atilde;o &quot;Log&iacute;stica&quot;<br/>Tel: (11) 99999-0000</div></div>
+                """;
+        StringBuilder html = new StringBuilder(targetLength + block.length());
+        html.append("<html><head><style>p.MsoNormal { margin: 0; font-family: Calibri; }</style></head><body>");
+        while (html.length() < targetLength) {
+            html.append(block);
+        }
+        return html.append("</body></html>").toString();
+    }
+}
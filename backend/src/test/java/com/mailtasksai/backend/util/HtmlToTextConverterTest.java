@@ -0,0 +1,76 @@
+package com.mailtasksai.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HtmlToTextConverterTest {
+
+    @Test
+    void convertsBlockTagsToLineBreaks() {
+        String html = "<p>Olá,</p><p>Segue a <b>cotação</b>:<br>Rota SP-RJ<br/>Carga 2t</p><div>Att</div>";
+
+        assertEquals("Olá,\n\nSegue a cotação:\nRota SP-RJ\nCarga 2t\n\nAtt", HtmlToTextConverter.toText(html));
+    }
+
+    @Test
+    void rendersListItemsAsBullets() {
+        String html = "<ul><li>Item 1</li><li> Item 2 </li></ul>";
+
+        assertEquals("• Item 1\n• Item 2", HtmlToTextConverter.toText(html));
+    }
+
+    @Test
+    void decodesEntitiesAfterStrippingTags() {
+        String html = "A&nbsp;&amp;&nbsp;B &lt;b&gt; &quot;x&quot; &#39;y&#39; &#x2014; &copy; &foo; &";
+
+        assertEquals("A & B <b> \"x\" 'y' \u2014 \u00a9 &foo; &", HtmlToTextConverter.toText(html));
+    }
+
+    @Test
+    void decodesNamedAccentsAndTypographicPunctuation() {
+        String html = "<p>Solicita&ccedil;&atilde;o de cota&ccedil;&atilde;o &ndash; &Aacute;rea t&eacute;cnica</p>"
+                + "<p>Seguem os pre&ccedil;os do &ocirc;nibus&hellip; J&aacute; est&aacute; &ldquo;ok&rdquo;, "
+                + "n&atilde;o&shy;-reembols&aacute;vel &rsquo;24 &euro;</p>";
+
+        assertEquals("Solicitação de cotação \u2013 Área técnica\n\n"
+                + "Seguem os preços do ônibus\u2026 Já está \u201cok\u201d, não-reembolsável \u201924 \u20ac",
+                HtmlToTextConverter.toText(html));
+    }
+
+    @Test
+    void collapsesWhitespaceAndLimitsBlankLines() {
+        String html = "<div>\r\n  linha   um\t</div>\n\n<br><br><br><br><p>linha dois</p>  ";
+
+        assertEquals("linha um\n\nlinha dois", HtmlToTextConverter.toText(html));
+    }
+
+    @Test
+    void dropsStylesScriptsAndComments() {
+        String html = "<html><head><style>p { color: red; }</style></head><body>"
+                + "<!-- comentário --><script>alert('x')</script><p class=\"MsoNormal\" title=\"a>b\">Texto</p></body></html>";
+
+        assertEquals("Texto", HtmlToTextConverter.toText(html));
+    }
+
+    @Test
+    void flattensToSingleLineForPrompts() {
+        String html = "<p>Olá</p><ul><li>um</li><li>dois</li></ul><table><tr><td>a</td><td>b</td></tr></table>";
+
+        assertEquals("Olá • um • dois a b", HtmlToTextConverter.toSingleLine(html));
+    }
+
+    @Test
+    void keepsLiteralLessThanThatIsNotATag() {
+        assertEquals("prazo < 24h", HtmlToTextConverter.toText("prazo < 24h"));
+        assertEquals("", HtmlToTextConverter.toText(null));
+    }
+
+    @Test
+    void normalizesPlainTextBodiesWithoutInterpretingMarkup() {
+        String text = "Olá,\r\n\r\n\r\n\r\nSegue   o <anexo> &amp; o prazo.\n";
+
+        assertEquals("Olá,\n\nSegue o <anexo> &amp; o prazo.", HtmlToTextConverter.normalizeText(text));
+        assertEquals("Olá, Segue o <anexo> &amp; o prazo.", HtmlToTextConverter.normalizeSingleLine(text));
+    }
+}
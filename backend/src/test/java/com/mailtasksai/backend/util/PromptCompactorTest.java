@@ -0,0 +1,63 @@
+package com.mailtasksai.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptCompactorTest {
+
+    @Test
+    void dropsOutlookReplyHistory() {
+        String text = """
+                Pode confirmar a coleta de amanhã às 8h?
+
+                De: João Silva <joao@cliente.com>
+                Enviado: segunda-feira, 3 de março de 2025 10:12
+                Para: Operações
+                Assunto: Coleta
+
+                Precisamos de uma coleta de 300kg em Curitiba.""";
+
+        assertEquals("Pode confirmar a coleta de amanhã às 8h?", PromptCompactor.compact(text, 400));
+    }
+
+    @Test
+    void dropsQuotedLinesSignatureAndLegalFooter() {
+        String text = """
+                Segue a nota fiscal para pagamento até sexta.
+                > mensagem anterior citada
+                Esta mensagem pode conter informação confidencial e é destinada apenas ao destinatário.
+                Atenciosamente,
+                Maria
+                Financeiro - ACME""";
+
+        assertEquals("Segue a nota fiscal para pagamento até sexta.", PromptCompactor.compact(text, 400));
+    }
+
+    @Test
+    void keepsForwardedMessageWhenThereIsNoOwnContent() {
+        String text = """
+                ---------- Forwarded message ---------
+                From: Cliente <c@cliente.com>
+                Date: 3 de mar. de 2025
+                Subject: Cotação
+
+                Preciso de cotação para Rota SP-RJ, 2 pallets.
+                Em seg., 3 de mar. de 2025, Vendas escreveu:
+                > pode enviar os dados?""";
+
+        assertEquals("Preciso de cotação para Rota SP-RJ, 2 pallets.", PromptCompactor.compact(text, 400));
+    }
+
+    @Test
+    void fitsBodyIntoTokenBudget() {
+        String text = "Pedido urgente de coleta. " + "palavra ".repeat(500);
+
+        String compacted = PromptCompactor.compact(text, 50);
+
+        assertTrue(compacted.startsWith("Pedido urgente de coleta."));
+        assertTrue(compacted.endsWith("..."));
+        assertTrue(TokenEstimator.estimate(compacted) <= 55);
+    }
+}
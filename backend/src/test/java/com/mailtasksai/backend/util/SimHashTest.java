@@ -0,0 +1,65 @@
+package com.mailtasksai.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimHashTest {
+
+    private static final String REQUEST = """
+            Bom dia, precisamos de uma cotação de frete para a rota São Paulo x Curitiba.
+            A carga são dois pallets de peças automotivas, total aproximado de 800kg,
+            medidas 1,20 x 1,00 x 1,50 cada. A coleta precisa ser feita até quinta-feira
+            no nosso centro de distribuição em Guarulhos. Favor enviar valor e prazo de entrega.
+            """;
+
+    @Test
+    void identicalTextsIgnoringCaseAccentsAndSpacing() {
+        String variant = REQUEST.toUpperCase().replace("ã", "a").replace("\n", "  ");
+
+        assertEquals(SimHash.compute(REQUEST, 20), SimHash.compute(variant, 20));
+    }
+
+    // Limiar padrão do NearDuplicateIndex: 0.95, até 3 bits diferentes
+    @Test
+    void reminderStaysWithinThreshold() {
+        String reminder = "Lembrete: " + REQUEST;
+
+        long a = SimHash.compute(REQUEST, 20);
+        long b = SimHash.compute(reminder, 20);
+        assertTrue(SimHash.distance(a, b) <= 3, "distância " + SimHash.distance(a, b));
+    }
+
+    @Test
+    void routeOrQuantityChangeFallsOutsideThreshold() {
+        long a = SimHash.compute(REQUEST, 20);
+        long route = SimHash.compute(REQUEST.replace("Curitiba", "Porto Alegre"), 20);
+        long quantity = SimHash.compute(REQUEST.replace("800kg", "1200kg"), 20);
+
+        assertTrue(SimHash.distance(a, route) > 3, "distância " + SimHash.distance(a, route));
+        assertTrue(SimHash.distance(a, quantity) > 3, "distância " + SimHash.distance(a, quantity));
+    }
+
+    @Test
+    void unrelatedTextsAreFarApart() {
+        String other = """
+                Olá equipe, segue em anexo a nota fiscal referente aos serviços prestados em março.
+                O pagamento deve ser feito por boleto até o dia 15. Qualquer dúvida sobre os valores
+                cobrados, entrar em contato com o financeiro pelo telefone de sempre. Obrigado.
+                """;
+
+        long a = SimHash.compute(REQUEST, 20);
+        long b = SimHash.compute(other, 20);
+        assertTrue(SimHash.distance(a, b) > 20, "distância " + SimHash.distance(a, b));
+    }
+
+    @Test
+    void shortTextsHaveNoFingerprint() {
+        assertNull(SimHash.compute("Ok, obrigado!", 20));
+        assertNull(SimHash.compute(null, 20));
+        assertNotNull(SimHash.compute(REQUEST, 20));
+    }
+}
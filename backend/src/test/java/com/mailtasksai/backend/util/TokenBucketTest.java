@@ -0,0 +1,36 @@
+package com.mailtasksai.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void overestimateIsReturnedToTheBucket() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(60_000);
+        bucket.acquire(60_000);
+
+        // Reservou 60k, a resposta informou 20k: os 40k voltam na hora
+        bucket.adjust(40_000);
+        long started = System.nanoTime();
+        bucket.acquire(40_000);
+        assertTrue(millisSince(started) < 500, "esperou " + millisSince(started) + "ms");
+    }
+
+    @Test
+    void underestimateDelaysNextReservations() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(600_000); // 10 tokens por milissegundo
+        bucket.acquire(600_000);
+
+        // Consumo real 3k acima da estimativa: a próxima reserva espera também por eles
+        bucket.adjust(-3_000);
+        long started = System.nanoTime();
+        bucket.acquire(1_000);
+        assertTrue(millisSince(started) >= 350, "esperou " + millisSince(started) + "ms");
+    }
+
+    private static long millisSince(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,23 @@
+package com.mailtasksai.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UrgencyHintsTest {
+
+    @Test
+    void detectsEscalationInPortugueseAndEnglish() {
+        assertTrue(UrgencyHints.mayRaiseUrgency("Preciso disso com URGÊNCIA, o caminhão está parado."));
+        assertTrue(UrgencyHints.mayRaiseUrgency("Consegue me responder o quanto antes?"));
+        assertTrue(UrgencyHints.mayRaiseUrgency("Please send it ASAP."));
+    }
+
+    @Test
+    void ignoresRoutineReplies() {
+        assertFalse(UrgencyHints.mayRaiseUrgency("Obrigado, recebido. Seguimos conforme combinado."));
+        assertFalse(UrgencyHints.mayRaiseUrgency("Segue em anexo a nota fiscal."));
+        assertFalse(UrgencyHints.mayRaiseUrgency(null));
+    }
+}